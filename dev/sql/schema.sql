@@ -15,6 +15,7 @@ create table problem
     enable       tinyint(1) default 0                null comment '是否开放',
     category     char(128)                           null comment '分类, 逗号分隔',
     create_at    bigint     default unix_timestamp() not null comment '秒级',
+    version      int        default 0                not null comment '更新时 +1',
     deleted      tinyint    default 0                not null
 );
 
@@ -107,7 +108,22 @@ create index idx_time on solution (submit_time desc);
 create table source_code
 (
     solution_id int primary key not null,
-    code        text            not null
+    code        mediumblob      not null comment 'deflate 压缩'
+);
+
+# 提交各阶段的时间，判题结果写入后保存
+create table solution_timeline
+(
+    solution_id   int primary key not null,
+    trace_id      char(36)        null comment '网关生成的关联 Id',
+    accept_at     bigint          null comment '以下均为毫秒级时间戳',
+    insert_at     bigint          null,
+    dequeue_at    bigint          null,
+    compile_start bigint          null,
+    compile_end   bigint          null,
+    run_start     bigint          null,
+    run_end       bigint          null,
+    persist_at    bigint          null
 );
 
 # 排名
@@ -138,6 +154,26 @@ create table scoreboard_contest
 
 create index idx_cid_score_time on scoreboard_contest (contest_id, score desc, update_time asc);
 
+# 竞赛结束后的最终排名，由 core 写入
+create table contest_ranking
+(
+    contest_id int primary key not null,
+    etag       char(34)        not null comment '带引号的 MD5',
+    data       mediumblob      not null comment 'gzip 压缩的 JSON',
+    create_at  bigint          not null comment '毫秒级'
+);
+
+# 用户在每道题目的最高分，用于增量更新排名
+create table best_score
+(
+    uid        int                 not null,
+    contest_id int       default 0 not null comment '非竞赛为 0',
+    problem_id int                 not null,
+    score      double    default 0 not null,
+    pass_rate  double    default 0 not null,
+    primary key (uid, contest_id, problem_id)
+);
+
 create table settings
 (
     id                  int primary key      not null,
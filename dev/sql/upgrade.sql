@@ -0,0 +1,45 @@
+# 已有数据库的升级脚本，按顺序执行新增的部分
+use cloud_oj;
+
+# 用户在每道题目的最高分，判题服务启动时从 solution 生成
+create table if not exists best_score
+(
+    uid        int                 not null,
+    contest_id int       default 0 not null comment '非竞赛为 0',
+    problem_id int                 not null,
+    score      double    default 0 not null,
+    pass_rate  double    default 0 not null,
+    primary key (uid, contest_id, problem_id)
+);
+
+# 题目版本，判题服务据此刷新题目缓存
+alter table problem
+    add column if not exists version int default 0 not null comment '更新时 +1' after create_at;
+
+# 代码压缩存储，已有数据由判题服务在后台压缩
+alter table source_code
+    modify code mediumblob not null comment 'deflate 压缩';
+
+# 提交各阶段的时间
+create table if not exists solution_timeline
+(
+    solution_id   int primary key not null,
+    trace_id      char(36)        null comment '网关生成的关联 Id',
+    accept_at     bigint          null comment '以下均为毫秒级时间戳',
+    insert_at     bigint          null,
+    dequeue_at    bigint          null,
+    compile_start bigint          null,
+    compile_end   bigint          null,
+    run_start     bigint          null,
+    run_end       bigint          null,
+    persist_at    bigint          null
+);
+
+# 竞赛结束后的最终排名，由 core 写入
+create table if not exists contest_ranking
+(
+    contest_id int primary key not null,
+    etag       char(34)        not null comment '带引号的 MD5',
+    data       mediumblob      not null comment 'gzip 压缩的 JSON',
+    create_at  bigint          not null comment '毫秒级'
+);
@@ -2,6 +2,7 @@
 #define RUNNER_H 1
 
 #include <fstream>
+#include <vector>
 #include "syscall_rule.h"
 
 #define AC 1
@@ -25,6 +26,9 @@ struct Config {
     long memory{};             // 内存限制(MiB)，用于判断是否超出限制
     long output_size{};        // 输出限制(MiB)
     int cpu = 0;               // CPU 核心，将进程绑定到指定核心减少切换
+    bool mounted = false;      // 工作目录已由判题服务挂载好运行环境
+    int shard = 0;             // 分片编号，只运行下标 % shards == shard 的测试点
+    int shards = 1;            // 分片数量
     int std_in{};              // 输入文件 fd(用于重定向 stdin)
     int std_out{};             // 用户输出 fd(用于重定向 stdout)
     int in_fd{};               // 输入文件 fd
@@ -45,6 +49,14 @@ struct Result {
     char err[128];
 };
 
+/**
+ * 测试点下标和结果(分片模式输出)
+ */
+struct Detail {
+    int index;
+    Result result;
+};
+
 /**
  * 最终结果
  */
@@ -68,6 +80,7 @@ private:
     SyscallRule *syscall_rule;
     void *dl_handler = nullptr;
     spj_func spj = nullptr;
+    std::vector<Detail> details;
 private:
     [[nodiscard]] int set_cpu() const;
 
@@ -83,6 +96,8 @@ public:
     ~Runner();
 
     RTN judge();
+
+    [[nodiscard]] const std::vector<Detail> &get_details() const;
 };
 
 #endif // RUNNER_H
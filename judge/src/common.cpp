@@ -1,3 +1,4 @@
+#include <cstdio>
 #include <cstring>
 #include <getopt.h>
 #include "common.h"
@@ -23,10 +24,12 @@ static struct option long_options[] = {
         {"workdir", 1, nullptr, 'w'},
         {"data", 1, nullptr, 'd'},
         {"cpu", 1, nullptr, 'u'},
+        {"mounted", 0, nullptr, 'p'},
+        {"shard", 1, nullptr, 's'},
         {nullptr, 0, nullptr, 0}
 };
 
-static const char *short_options = "c:l:t:m:o:w:d:u:";
+static const char *short_options = "c:l:t:m:o:w:d:u:ps:";
 
 int get_args(int argc, char *argv[], char *cmd, int &lang, char workdir[], char datadir[], Config &config) {
     int opt;
@@ -67,6 +70,17 @@ int get_args(int argc, char *argv[], char *cmd, int &lang, char workdir[], char
                 config.output_size = (int) strtol(optarg, nullptr, 10) << 10;
                 count++;
                 break;
+            case 'p':
+                // 可选参数，不计入 count
+                config.mounted = true;
+                break;
+            case 's':
+                // 可选参数，格式为 k/n
+                if (sscanf(optarg, "%d/%d", &config.shard, &config.shards) != 2
+                    || config.shards < 1 || config.shard < 0 || config.shard >= config.shards) {
+                    return -1;
+                }
+                break;
             case '?':
             default:
                 return -1;
@@ -49,8 +49,23 @@ int main(int argc, char *argv[]) {
            << R"( "passed": )" << rtn.passed << ",\n"
            << R"( "passRate": )" << rtn.passRate << ",\n"
            << R"( "time": )" << rtn.time << ",\n"
-           << R"( "memory": )" << rtn.memory << ",\n"
-           << R"( "error": ")" << rtn.err << "\"\n"
+           << R"( "memory": )" << rtn.memory << ",\n";
+
+        if (config.shards > 1) {
+            // 分片模式输出每个测试点的结果，由判题服务合并
+            ss << R"( "tests": [)";
+            auto &details = runner.get_details();
+
+            for (auto i = 0; i < details.size(); i++) {
+                auto &d = details[i];
+                ss << (i > 0 ? ", " : "") << "[" << d.index << ", " << d.result.status << ", "
+                   << d.result.time << ", " << d.result.mem << "]";
+            }
+
+            ss << "],\n";
+        }
+
+        ss << R"( "error": ")" << rtn.err << "\"\n"
            << "}\n";
     }
 
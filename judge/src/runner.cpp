@@ -267,7 +267,10 @@ RTN Runner::judge() {
     }
 
     closedir(dp);
-    setup_env(work_dir);
+
+    if (!config.mounted) {
+        setup_env(work_dir);
+    }
 
     try {
         // * 获取测试数据
@@ -287,8 +290,8 @@ RTN Runner::judge() {
             goto exit;
         }
 
-        // * N 组数据(N >= 1)
-        for (auto i = 0; i < input_files.size(); i++) {
+        // * N 组数据(N >= 1)，分片时只运行属于当前分片的测试点
+        for (auto i = config.shard; i < input_files.size(); i += config.shards) {
             sprintf(out_path, "%s/%d.out", work_dir, i + 1);
             config.in_fd = open(input_files[i].c_str(), O_RDONLY, 0644);
             config.std_in = open(input_files[i].c_str(), O_RDONLY, 0644);
@@ -301,6 +304,7 @@ RTN Runner::judge() {
 
             Result res = run();
             results.push_back(res);
+            details.push_back({i, res});
 
             if (res.status == RE || res.status == IE) {
                 rtn.result = res.status;
@@ -308,7 +312,7 @@ RTN Runner::judge() {
                 goto exit;
             }
         }
-    } else if (!output_files.empty()) {
+    } else if (!output_files.empty() && config.shard == 0) {
         // * 没有输入数据，读取第一个 .out 文件
         sprintf(out_path, "%s/%s", work_dir, "1.out");
         config.in_fd = open("/dev/null", O_RDONLY, 0644);
@@ -322,18 +326,27 @@ RTN Runner::judge() {
 
         Result res = run();
         results.push_back(res);
+        details.push_back({0, res});
 
         if (res.status == RE || res.status == IE) {
             rtn.result = res.status;
             strcpy(rtn.err, res.err);
             goto exit;
         }
-    } else {
+    } else if (output_files.empty()) {
         rtn = {.result = IE, .err = "无测试数据"};
     }
 
     exit:
     Utils::calc_results(rtn, results, (int) input_files.size());
-    end_env(work_dir);
+
+    if (!config.mounted) {
+        end_env(work_dir);
+    }
+
     return rtn;
 }
+
+const std::vector<Detail> &Runner::get_details() const {
+    return details;
+}
@@ -0,0 +1,369 @@
+package cloud.oj.core.component;
+
+import cloud.oj.core.config.AppConfig;
+import cloud.oj.core.dao.ContestDao;
+import cloud.oj.core.dao.RankingDao;
+import cloud.oj.core.entity.*;
+import cloud.oj.core.error.GenericException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 内存中的竞赛排名
+ * <p>首次查询时生成(竞赛、题目、用户、已判题的提交各一条 SQL)，之后由判题事件增量更新，查询时读取快照</p>
+ * <p>规则与判题服务更新 scoreboard_contest 一致：每题取最高分，首次全部通过计入通过数，
+ * 分数提高时更新时间，编译错误和内部错误不计入；每题的分数构成取通过率最高的提交</p>
+ * <p>每隔 scoreboard-ttl 从数据库重新生成，修正丢失的事件和用户信息的变化</p>
+ */
+@Slf4j
+@Component
+public class ContestScoreboard {
+
+    // 不计入排名的结果(从 0 开始)
+    private static final int CE = 5;
+
+    private static final int IE = 7;
+
+    /**
+     * 已判题的提交，只保留排名需要的字段
+     */
+    private record Judged(Integer solutionId, Integer uid, Integer problemId, Integer result,
+                          double score, double passRate, long submitTime) {
+
+        static Judged of(Solution s) {
+            return new Judged(
+                    s.getSolutionId(),
+                    s.getUid(),
+                    s.getProblemId(),
+                    s.getResult(),
+                    Optional.ofNullable(s.getScore()).orElse(0D),
+                    Optional.ofNullable(s.getPassRate()).orElse(0D),
+                    Optional.ofNullable(s.getSubmitTime()).orElse(0L)
+            );
+        }
+    }
+
+    /**
+     * 一个用户的排名
+     */
+    private static class Entry {
+        // 非普通用户为 null，不参与排名
+        final Ranking user;
+
+        // problemId -> {最高分, 最高通过率}
+        final Map<Integer, double[]> best = new HashMap<>();
+
+        // 每题通过率最高的提交，下标同 Board.problemIds
+        final Judged[] details;
+
+        int committed = 0;
+
+        int passed = 0;
+
+        double score = 0;
+
+        long updateTime = 0;
+
+        Entry(Ranking user, int problems) {
+            this.user = user;
+            this.details = new Judged[problems];
+        }
+
+        void add(Judged s, Integer index) {
+            if (index != null && (details[index] == null || s.passRate() > details[index].passRate())) {
+                details[index] = s;
+            }
+
+            if (Objects.equals(s.result(), CE) || Objects.equals(s.result(), IE)) {
+                return;
+            }
+
+            var b = best.computeIfAbsent(s.problemId(), k -> new double[2]);
+            var scoreDelta = Math.max(b[0], s.score()) - b[0];
+            var passedDelta = s.passRate() == 1 && b[1] < 1 ? 1 : 0;
+            b[0] += scoreDelta;
+            b[1] = Math.max(b[1], s.passRate());
+
+            if (committed == 0 || scoreDelta > 0 || passedDelta > 0) {
+                updateTime = s.submitTime();
+            }
+
+            committed += 1;
+            passed += passedDelta;
+            score += scoreDelta;
+        }
+    }
+
+    private class Board {
+        final Integer contestId;
+
+        final long createdAt;
+
+        volatile long lastRead;
+
+        final CountDownLatch loaded = new CountDownLatch(1);
+
+        RuntimeException error;
+
+        Contest contest;
+
+        // 按 order 排序的题目
+        List<Integer> problemIds;
+
+        List<Integer> orders;
+
+        // problemId -> 下标
+        final Map<Integer, Integer> index = new HashMap<>();
+
+        final Map<Integer, Entry> entries = new HashMap<>();
+
+        // 已计入的提交
+        final Set<Integer> seen = new HashSet<>();
+
+        // 生成期间到达的事件
+        final List<Judged> pending = new ArrayList<>();
+
+        long version = 0;
+
+        RankingContest snapshot;
+
+        long snapshotVersion = -1;
+
+        boolean snapshotEnded;
+
+        Board(Integer contestId, long now) {
+            this.contestId = contestId;
+            this.createdAt = now;
+            this.lastRead = now;
+        }
+
+        synchronized void init(Contest contest, List<ProblemOrder> problems, List<Ranking> users,
+                               List<Solution> solutions) {
+            this.contest = contest;
+            this.problemIds = problems.stream().map(ProblemOrder::getProblemId).toList();
+            this.orders = problems.stream().map(ProblemOrder::getOrder).toList();
+
+            for (int i = 0; i < problemIds.size(); i++) {
+                index.put(problemIds.get(i), i);
+            }
+
+            var userMap = new HashMap<Integer, Ranking>();
+            users.forEach(u -> userMap.put(u.getUid(), u));
+            solutions.forEach(s -> add(Judged.of(s), userMap::get));
+            pending.forEach(s -> add(s, rankingDao::getRankingUser));
+            pending.clear();
+            loaded.countDown();
+        }
+
+        synchronized void fail(RuntimeException e) {
+            error = e;
+            loaded.countDown();
+        }
+
+        synchronized void offer(Judged s) {
+            if (loaded.getCount() > 0) {
+                pending.add(s);
+            } else if (error == null) {
+                add(s, rankingDao::getRankingUser);
+            }
+        }
+
+        private void add(Judged s, Function<Integer, Ranking> users) {
+            if (!seen.add(s.solutionId())) {
+                return;
+            }
+
+            entries.computeIfAbsent(s.uid(), uid -> new Entry(users.apply(uid), problemIds.size()))
+                    .add(s, index.get(s.problemId()));
+            version += 1;
+        }
+
+        RankingContest snapshot(long now) {
+            try {
+                loaded.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GenericException(HttpStatus.SERVICE_UNAVAILABLE, "排名生成被中断");
+            }
+
+            synchronized (this) {
+                if (error != null) {
+                    throw error;
+                }
+
+                lastRead = now;
+                var ended = contest.getEndAt() * 1000 <= now;
+
+                if (snapshot == null || snapshotVersion != version || snapshotEnded != ended) {
+                    snapshot = build(now, ended);
+                    snapshotVersion = version;
+                    snapshotEnded = ended;
+                }
+
+                return snapshot;
+            }
+        }
+
+        private RankingContest build(long now, boolean ended) {
+            var c = new Contest(contest.getContestId(), contest.getContestName(), null, null,
+                    contest.getStartAt(), contest.getEndAt(), contest.getLanguages(),
+                    contest.getStartAt() * 1000 <= now, ended, contest.getCreateAt(), null);
+            var data = new RankingContest(c);
+            var sorted = entries.values().stream()
+                    .filter(e -> e.user != null && e.score > 0)
+                    .sorted(Comparator.comparingDouble((Entry e) -> -e.score).thenComparingLong(e -> e.updateTime))
+                    .toList();
+            var ranking = new ArrayList<Ranking>(sorted.size());
+
+            for (var e : sorted) {
+                ranking.add(toRanking(e, ranking.size() + 1));
+            }
+
+            data.setProblemIds(problemIds);
+            data.setRanking(ranking);
+            return data;
+        }
+
+        private Ranking toRanking(Entry e, int rank) {
+            var r = new Ranking();
+            r.setRank(rank);
+            r.setUid(e.user.getUid());
+            r.setUsername(e.user.getUsername());
+            r.setNickname(e.user.getNickname());
+            r.setHasAvatar(e.user.getHasAvatar());
+            r.setStar(e.user.getStar());
+            r.setCommitted(e.committed);
+            r.setPassed(e.passed);
+            r.setScore(truncate(e.score));
+
+            var details = new LinkedHashSet<ScoreDetail>();
+
+            for (int i = 0; i < problemIds.size(); i++) {
+                var detail = new ScoreDetail(problemIds.get(i), orders.get(i));
+                var s = e.details[i];
+
+                if (s != null) {
+                    detail.setResult(s.result());
+                    detail.setScore(truncate(s.score()));
+                }
+
+                details.add(detail);
+            }
+
+            r.setDetails(details);
+            return r;
+        }
+    }
+
+    private final RankingDao rankingDao;
+
+    private final ContestDao contestDao;
+
+    private final long ttl;
+
+    private final ConcurrentHashMap<Integer, Board> boards = new ConcurrentHashMap<>();
+
+    public ContestScoreboard(AppConfig appConfig, RankingDao rankingDao, ContestDao contestDao) {
+        this.rankingDao = rankingDao;
+        this.contestDao = contestDao;
+        this.ttl = TimeUnit.SECONDS.toMillis(appConfig.getScoreboardTtl());
+    }
+
+    /**
+     * 读取竞赛排名的快照，没有或已过期时生成
+     * <p>同一竞赛只有一个线程生成，其他线程等待</p>
+     *
+     * @throws GenericException 竞赛不存在
+     */
+    public RankingContest get(Integer contestId) {
+        while (true) {
+            var now = System.currentTimeMillis();
+            var board = boards.get(contestId);
+
+            if (board != null && now - board.createdAt <= ttl) {
+                return board.snapshot(now);
+            }
+
+            var fresh = new Board(contestId, now);
+            var installed = board == null
+                    ? boards.putIfAbsent(contestId, fresh) == null
+                    : boards.replace(contestId, board, fresh);
+
+            if (installed) {
+                load(fresh);
+                return fresh.snapshot(now);
+            }
+        }
+    }
+
+    /**
+     * 计入判题完成的竞赛提交，没有生成排名的竞赛忽略
+     * <p>重复的事件按 solutionId 去重</p>
+     */
+    public void apply(Solution event) {
+        if (event.getContestId() == null || event.getSolutionId() == null || event.getState() != 0) {
+            return;
+        }
+
+        var board = boards.get(event.getContestId());
+
+        if (board == null) {
+            return;
+        }
+
+        if (System.currentTimeMillis() - board.lastRead > ttl) {
+            // 不再被查询
+            boards.remove(event.getContestId(), board);
+            return;
+        }
+
+        board.offer(Judged.of(event));
+    }
+
+    /**
+     * 竞赛或题目变化后移除，下次查询时重新生成
+     */
+    public void invalidate(Integer contestId) {
+        boards.remove(contestId);
+    }
+
+    private void load(Board board) {
+        var contestId = board.contestId;
+
+        try {
+            var start = System.currentTimeMillis();
+            var contest = contestDao.getContestById(contestId);
+
+            if (contest == null) {
+                throw new GenericException(HttpStatus.NOT_FOUND, "竞赛不存在");
+            }
+
+            var problems = contestDao.getProblemOrders(contestId).stream().sorted().toList();
+            var users = rankingDao.getContestUsers(contestId);
+            var solutions = rankingDao.getJudgedForContest(contestId);
+            board.init(contest, problems, users, solutions);
+            log.debug("生成竞赛({})排名: {} 个提交, 耗时 {} ms",
+                    contestId, solutions.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            boards.remove(contestId, board);
+            board.fail(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 保留两位小数，与 SQL 中的 truncate 一致
+     */
+    private static Double truncate(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.DOWN).doubleValue();
+    }
+}
@@ -0,0 +1,213 @@
+package cloud.oj.core.component;
+
+import cloud.oj.core.config.AppConfig;
+import cloud.oj.core.dao.RankingDao;
+import cloud.oj.core.entity.ContestRanking;
+import cloud.oj.core.entity.RankingContest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 序列化后的竞赛排名
+ * <p>每个竞赛保留最近一次序列化并 gzip 压缩的结果，ETag 为 JSON 的 MD5，多个实例的结果相同</p>
+ * <p>距上次生成超过 ranking-rebuild-interval 后由一个线程重新生成，其他线程返回上次的结果；
+ * {@link ContestScoreboard} 的快照没有变化时不重新序列化</p>
+ * <p>竞赛结束且提交全部判题完成后，从数据库重新生成一次并保存到 contest_ranking，之后只返回保存的结果</p>
+ */
+@Slf4j
+@Component
+public class RankingCache {
+
+    /**
+     * 序列化后的排名
+     *
+     * @param endAt   竞赛结束时间(毫秒)
+     * @param source  生成时的快照，未变化时不重新序列化，最终排名为 null
+     * @param builtAt 生成时间(毫秒)
+     */
+    public record Body(String etag, byte[] gzip, long endAt, boolean ended, RankingContest source, long builtAt) {
+
+        /**
+         * 解压，用于不支持 gzip 的客户端
+         */
+        public byte[] json() {
+            try (var in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+                return in.readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static class Slot {
+        final ReentrantLock lock = new ReentrantLock();
+
+        volatile Body body;
+
+        volatile long lastRead;
+    }
+
+    private final ContestScoreboard contestScoreboard;
+
+    private final RankingDao rankingDao;
+
+    private final ObjectMapper objectMapper;
+
+    private final long interval;
+
+    private final long ttl;
+
+    private final ConcurrentHashMap<Integer, Slot> slots = new ConcurrentHashMap<>();
+
+    public RankingCache(AppConfig appConfig, ContestScoreboard contestScoreboard, RankingDao rankingDao,
+                        ObjectMapper objectMapper) {
+        this.contestScoreboard = contestScoreboard;
+        this.rankingDao = rankingDao;
+        this.objectMapper = objectMapper;
+        this.interval = appConfig.getRankingRebuildInterval();
+        this.ttl = TimeUnit.SECONDS.toMillis(appConfig.getScoreboardTtl());
+    }
+
+    /**
+     * 读取竞赛排名，过期时重新生成
+     * <p>没有结果时等待生成，已有结果时只有取到锁的线程生成，其他线程返回上次的结果</p>
+     */
+    public Body get(Integer contestId) {
+        var now = System.currentTimeMillis();
+        var slot = slots.computeIfAbsent(contestId, k -> new Slot());
+        slot.lastRead = now;
+        var body = slot.body;
+
+        if (body != null && fresh(body, now)) {
+            return body;
+        }
+
+        if (body == null) {
+            slot.lock.lock();
+        } else if (!slot.lock.tryLock()) {
+            return body;
+        }
+
+        try {
+            body = slot.body;
+
+            if (body == null || !fresh(body, System.currentTimeMillis())) {
+                body = build(contestId, body);
+                slot.body = body;
+                evict(body.builtAt());
+            }
+
+            return body;
+        } catch (RuntimeException e) {
+            if (slot.body == null) {
+                slots.remove(contestId, slot);
+            }
+
+            throw e;
+        } finally {
+            slot.lock.unlock();
+        }
+    }
+
+    /**
+     * 竞赛或题目变化后移除，包括保存的最终排名
+     */
+    public void invalidate(Integer contestId) {
+        contestScoreboard.invalidate(contestId);
+        slots.remove(contestId);
+        rankingDao.deleteFinal(contestId);
+    }
+
+    /**
+     * 最终排名每隔 scoreboard-ttl 检查一次是否被其他实例删除；
+     * 其他排名超过 ranking-rebuild-interval 或竞赛已结束但生成时未结束时过期
+     */
+    private boolean fresh(Body body, long now) {
+        if (body.source() == null) {
+            return now - body.builtAt() <= ttl;
+        }
+
+        return now - body.builtAt() < interval && (body.ended() || body.endAt() > now);
+    }
+
+    private Body build(Integer contestId, Body old) {
+        var now = System.currentTimeMillis();
+
+        if (old == null || old.source() == null) {
+            var saved = rankingDao.getFinal(contestId);
+
+            if (saved != null) {
+                return of(saved, now);
+            }
+        }
+
+        var data = contestScoreboard.get(contestId);
+
+        if (data.getContest().isEnded() && !rankingDao.hasUnjudged(contestId)) {
+            return persist(contestId);
+        }
+
+        if (old != null && old.source() == data) {
+            return new Body(old.etag(), old.gzip(), old.endAt(), old.ended(), data, now);
+        }
+
+        return serialize(data, now);
+    }
+
+    /**
+     * 生成并保存最终排名
+     * <p>不使用事件更新的排名，从数据库重新生成；其他实例已保存时使用已保存的结果</p>
+     */
+    private Body persist(Integer contestId) {
+        contestScoreboard.invalidate(contestId);
+        var now = System.currentTimeMillis();
+        var body = serialize(contestScoreboard.get(contestId), now);
+        rankingDao.saveFinal(new ContestRanking(contestId, body.etag(), body.gzip(), now));
+        var saved = rankingDao.getFinal(contestId);
+        log.info("保存竞赛({})的最终排名", contestId);
+        return saved == null ? body : of(saved, now);
+    }
+
+    private Body serialize(RankingContest data, long now) {
+        try {
+            var json = objectMapper.writeValueAsBytes(data);
+            var out = new ByteArrayOutputStream(json.length / 4);
+
+            try (var gzip = new GZIPOutputStream(out)) {
+                gzip.write(json);
+            }
+
+            var etag = "\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+            var contest = data.getContest();
+            return new Body(etag, out.toByteArray(), contest.getEndAt() * 1000, contest.isEnded(), data, now);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Body of(ContestRanking saved, long now) {
+        return new Body(saved.getEtag(), saved.getData(), 0, true, null, now);
+    }
+
+    /**
+     * 移除超过 scoreboard-ttl 未被查询的竞赛
+     */
+    private void evict(long now) {
+        slots.values().removeIf(slot -> now - slot.lastRead > ttl);
+    }
+}
@@ -0,0 +1,267 @@
+package cloud.oj.core.component;
+
+import cloud.oj.core.config.AppConfig;
+import cloud.oj.core.dao.SolutionDao;
+import cloud.oj.core.entity.Solution;
+import cloud.oj.core.entity.SolutionKey;
+import cloud.oj.core.service.SystemSettings;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 判题结果推送
+ * <p>客户端按 solutionId(直接提交模式) 或 (uid, submitTime) 订阅，
+ * 判题服务的提交事件到达后推送给对应的 {@link SseEmitter}</p>
+ * <p>订阅时查询一次数据库，之后不再逐个查询；判题完成或超时后结束连接</p>
+ * <p>判题服务不发布事件时开启轮询(verdict-poll-interval)，由一个线程定时查询所有等待中的提交，
+ * 每种订阅方式一条 SQL</p>
+ */
+@Slf4j
+@Component
+public class VerdictHub {
+
+    /**
+     * 一个连接，只推送比已推送的更新的状态
+     */
+    private static class Waiter {
+        final SseEmitter emitter;
+
+        // 订阅时读取的设置
+        final boolean showPassed;
+
+        // 从所在的 Map 中移除
+        Runnable unregister;
+
+        // 已推送的状态，从 0(运行完成) 开始，越小越新
+        int state = Integer.MAX_VALUE;
+
+        boolean done = false;
+
+        Waiter(SseEmitter emitter, boolean showPassed) {
+            this.emitter = emitter;
+            this.showPassed = showPassed;
+        }
+    }
+
+    private final SolutionDao solutionDao;
+
+    private final SystemSettings systemSettings;
+
+    private final ObjectMapper objectMapper;
+
+    private final long timeout;
+
+    private final ConcurrentHashMap<SolutionKey, Map<Waiter, Boolean>> waiters = new ConcurrentHashMap<>();
+
+    // solutionId -> 连接
+    private final ConcurrentHashMap<Integer, Map<Waiter, Boolean>> idWaiters = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(r -> {
+        var thread = new Thread(r, "VERDICT-POLL");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Timer tickTimer;
+
+    public VerdictHub(AppConfig appConfig, SolutionDao solutionDao, SystemSettings systemSettings,
+                      ObjectMapper objectMapper, MeterRegistry registry) {
+        this.solutionDao = solutionDao;
+        this.systemSettings = systemSettings;
+        this.objectMapper = objectMapper;
+        this.timeout = TimeUnit.SECONDS.toMillis(appConfig.getVerdictTimeout());
+        this.tickTimer = Timer.builder("solution.poll.tick")
+                .description("一次轮询(查询并推送所有等待中的提交)的耗时")
+                .register(registry);
+        Gauge.builder("solution.waiters", this, hub -> hub.waiters.size() + hub.idWaiters.size())
+                .description("等待判题结果的提交数量")
+                .register(registry);
+
+        var interval = appConfig.getVerdictPollInterval();
+
+        if (interval > 0) {
+            poller.scheduleWithFixedDelay(this::poll, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        poller.shutdownNow();
+    }
+
+    /**
+     * 按 (uid, submitTime) 订阅提交的状态和结果
+     * <p>先登记再查询数据库，查询期间到达的事件不会丢失</p>
+     */
+    public SseEmitter subscribe(Integer uid, Long submitTime) {
+        var waiter = register(waiters, new SolutionKey(uid, submitTime));
+        // 订阅前可能已经判题完成
+        var solution = solutionDao.getSolutionByUidAndTime(uid, submitTime, waiter.showPassed);
+
+        if (solution != null) {
+            send(waiter, solution.getState(), toJson(solution));
+        }
+
+        return waiter.emitter;
+    }
+
+    /**
+     * 按 solutionId 订阅提交的状态和结果
+     * <p>提交不存在或不属于该用户时直接结束</p>
+     */
+    public SseEmitter subscribeById(Integer uid, Integer solutionId) {
+        var waiter = register(idWaiters, solutionId);
+        var solution = solutionDao.getSolution(uid, solutionId, waiter.showPassed);
+
+        if (solution.isPresent()) {
+            send(waiter, solution.get().getState(), toJson(solution.get()));
+        } else {
+            waiter.done = true;
+            waiter.unregister.run();
+            waiter.emitter.complete();
+        }
+
+        return waiter.emitter;
+    }
+
+    /**
+     * 推送判题服务发布的事件
+     * <p>不查询数据库</p>
+     */
+    public void publish(Solution event) {
+        event.setPassRate(truncate(event.getPassRate()));
+        event.setScore(truncate(event.getScore()));
+        dispatch(event);
+    }
+
+    private <K> Waiter register(ConcurrentHashMap<K, Map<Waiter, Boolean>> map, K key) {
+        var showPassed = systemSettings.getSettings().isShowPassedPoints();
+        var waiter = new Waiter(new SseEmitter(timeout), showPassed);
+        var emitter = waiter.emitter;
+
+        waiter.unregister = () -> map.computeIfPresent(key, (k, list) -> {
+            list.remove(waiter);
+            return list.isEmpty() ? null : list;
+        });
+        emitter.onCompletion(waiter.unregister);
+        emitter.onError(e -> waiter.unregister.run());
+        emitter.onTimeout(() -> {
+            log.debug("等待判题结果超时: {}", key);
+            waiter.unregister.run();
+            emitter.complete();
+        });
+
+        map.computeIfAbsent(key, k -> new ConcurrentHashMap<>()).put(waiter, true);
+        return waiter;
+    }
+
+    /**
+     * 轮询，每种订阅方式一次查询所有等待中的提交
+     */
+    private void poll() {
+        if (waiters.isEmpty() && idWaiters.isEmpty()) {
+            return;
+        }
+
+        var start = System.nanoTime();
+
+        try {
+            if (!waiters.isEmpty()) {
+                var keys = new ArrayList<>(waiters.keySet());
+                solutionDao.getSolutionsByUidAndTime(keys).forEach(this::dispatch);
+            }
+
+            if (!idWaiters.isEmpty()) {
+                var ids = new ArrayList<>(idWaiters.keySet());
+                solutionDao.getSolutionsById(ids).forEach(this::dispatch);
+            }
+        } catch (Exception e) {
+            log.warn("轮询判题结果失败: {}", ExceptionUtils.getRootCause(e).getMessage());
+        } finally {
+            tickTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 推送给等待该提交的连接，不显示通过的测试点数量时去掉 total 和 passed
+     */
+    private void dispatch(Solution event) {
+        var list = waiters.get(new SolutionKey(event.getUid(), event.getSubmitTime()));
+        var idList = event.getSolutionId() == null ? null : idWaiters.get(event.getSolutionId());
+
+        if (list == null && idList == null) {
+            return;
+        }
+
+        var state = event.getState();
+        var full = toJson(event);
+        event.setTotal(null);
+        event.setPassed(null);
+        var hidden = toJson(event);
+
+        sendAll(list, state, full, hidden);
+        sendAll(idList, state, full, hidden);
+    }
+
+    private void sendAll(Map<Waiter, Boolean> list, int state, String full, String hidden) {
+        if (list != null) {
+            list.keySet().forEach(waiter -> send(waiter, state, waiter.showPassed ? full : hidden));
+        }
+    }
+
+    private void send(Waiter waiter, int state, String json) {
+        synchronized (waiter) {
+            if (waiter.done || state >= waiter.state) {
+                return;
+            }
+
+            waiter.state = state;
+
+            try {
+                waiter.emitter.send(SseEmitter.event().data(json).name("message"));
+
+                if (state == 0) {
+                    waiter.done = true;
+                    waiter.emitter.complete();
+                    waiter.unregister.run();
+                }
+            } catch (Exception e) {
+                // 客户端已断开
+                waiter.done = true;
+                waiter.unregister.run();
+            }
+        }
+    }
+
+    private String toJson(Solution solution) {
+        try {
+            return objectMapper.writeValueAsString(solution);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 保留两位小数，与 SQL 中的 truncate 一致
+     */
+    private static Double truncate(Double value) {
+        return value == null ? null : BigDecimal.valueOf(value).setScale(2, RoundingMode.DOWN).doubleValue();
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.ApplicationContext;
 
 import java.io.File;
+import java.util.Optional;
 
 @Slf4j
 @Getter
@@ -15,7 +16,20 @@ public class AppConfig {
 
     private final String fileDir;
 
-    public AppConfig(ApplicationContext context, String fileDir) {
+    private final Integer verdictTimeout;
+
+    private final Integer verdictPollInterval;
+
+    private final Integer scoreboardTtl;
+
+    private final Integer rankingRebuildInterval;
+
+    public AppConfig(ApplicationContext context, String fileDir, Integer verdictTimeout, Integer verdictPollInterval,
+                     Integer scoreboardTtl, Integer rankingRebuildInterval) {
+        this.verdictTimeout = Math.max(1, Optional.ofNullable(verdictTimeout).orElse(90));
+        this.verdictPollInterval = Math.max(0, Optional.ofNullable(verdictPollInterval).orElse(0));
+        this.scoreboardTtl = Math.max(1, Optional.ofNullable(scoreboardTtl).orElse(300));
+        this.rankingRebuildInterval = Math.max(0, Optional.ofNullable(rankingRebuildInterval).orElse(1000));
         var home = System.getProperty("user.home");
 
         if (fileDir == null) {
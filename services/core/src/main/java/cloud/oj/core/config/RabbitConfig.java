@@ -0,0 +1,43 @@
+package cloud.oj.core.config;
+
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RabbitConfig {
+
+    /**
+     * 判题服务发布的提交事件
+     */
+    public static final String SOLUTION_EVENTS = "SolutionEvents";
+
+    @Bean
+    public FanoutExchange solutionEvents() {
+        return new FanoutExchange(SOLUTION_EVENTS);
+    }
+
+    /**
+     * 每个实例一个临时队列，断开后自动删除
+     */
+    @Bean
+    public Queue solutionEventQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding solutionEventBinding(Queue solutionEventQueue, FanoutExchange solutionEvents) {
+        return BindingBuilder.bind(solutionEventQueue).to(solutionEvents);
+    }
+
+    @Bean
+    public MessageConverter jsonMessageConverter() {
+        return new Jackson2JsonMessageConverter();
+    }
+}
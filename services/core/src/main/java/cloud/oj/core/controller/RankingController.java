@@ -1,7 +1,11 @@
 package cloud.oj.core.controller;
 
+import cloud.oj.core.component.RankingCache;
 import cloud.oj.core.entity.PagedList;
 import cloud.oj.core.service.RankingService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -29,18 +33,42 @@ public class RankingController {
 
     /**
      * 获取竞赛排行榜
+     * <p>返回序列化后的结果，If-None-Match 与 ETag 相同时返回 304</p>
      */
     @GetMapping(path = "contest/{contestId}")
-    public ResponseEntity<?> getContestRanking(@PathVariable Integer contestId) {
-        var scoreboard = rankingService.getContestRanking(contestId);
-        return ResponseEntity.ok(scoreboard);
+    public ResponseEntity<?> getContestRanking(@PathVariable Integer contestId,
+                                               @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+                                               String encoding) {
+        return ranking(rankingService.getContestRanking(contestId), encoding);
     }
 
     /**
      * 获取竞赛排行榜(管理员用)
      */
     @GetMapping(path = "admin/contest/{contestId}")
-    public ResponseEntity<?> getRankingListAdmin(@PathVariable Integer contestId) {
-        return ResponseEntity.ok(rankingService.getContestRanking(contestId));
+    public ResponseEntity<?> getRankingListAdmin(@PathVariable Integer contestId,
+                                                 @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+                                                 String encoding) {
+        return ranking(rankingService.getContestRanking(contestId), encoding);
+    }
+
+    /**
+     * 客户端支持 gzip 时直接返回压缩后的结果
+     * <p>两种表示的内容不同，强 ETag 也要不同，gzip 的加上 -gzip 后缀</p>
+     */
+    private static ResponseEntity<byte[]> ranking(RankingCache.Body body, String encoding) {
+        var response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        var etag = body.etag();
+
+        if (encoding != null && encoding.contains("gzip")) {
+            return response.eTag(etag.substring(0, etag.length() - 1) + "-gzip\"")
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .body(body.gzip());
+        }
+
+        return response.eTag(etag).body(body.json());
     }
 }
@@ -47,9 +47,28 @@ public class SolutionController {
         return solutionService.getSolutionByUidAndTime(uid, time);
     }
 
+    /**
+     * 按 solutionId 获取判题结果(直接提交模式)
+     *
+     * @return {@link SseEmitter} 由服务端推送结果
+     */
+    @GetMapping("stream/{solutionId}")
+    public SseEmitter getStream(@RequestHeader Integer uid, @PathVariable Integer solutionId) {
+        return solutionService.getSolutionStream(uid, solutionId);
+    }
+
     @GetMapping("{solutionId}")
     public ResponseEntity<Solution> getBySolution(@RequestHeader Integer uid, @PathVariable Integer solutionId) {
         var data = solutionService.getSolution(uid, solutionId);
         return data.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.noContent().build());
     }
+
+    /**
+     * 获取任意用户的提交，带有各阶段的时间
+     */
+    @GetMapping("admin/{solutionId}")
+    public ResponseEntity<Solution> getBySolutionAdmin(@PathVariable Integer solutionId) {
+        var data = solutionService.getSolution(null, solutionId, true);
+        return data.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.noContent().build());
+    }
 }
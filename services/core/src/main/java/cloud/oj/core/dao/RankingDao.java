@@ -1,7 +1,8 @@
 package cloud.oj.core.dao;
 
+import cloud.oj.core.entity.ContestRanking;
 import cloud.oj.core.entity.Ranking;
-import cloud.oj.core.entity.ScoreDetail;
+import cloud.oj.core.entity.Solution;
 import org.apache.ibatis.annotations.Mapper;
 
 import java.util.List;
@@ -11,9 +12,37 @@ public interface RankingDao {
 
     List<List<?>> get(int start, int limit);
 
-    List<Ranking> getForContest(Integer contestId);
+    /**
+     * 竞赛中所有已判题的提交，按 solutionId 排序
+     */
+    List<Solution> getJudgedForContest(Integer cid);
 
-    List<ScoreDetail> getDetail(Integer uid, Integer cid);
+    /**
+     * 在竞赛中有提交的普通用户
+     */
+    List<Ranking> getContestUsers(Integer cid);
+
+    /**
+     * 普通用户的排名信息，其他角色为 null
+     */
+    Ranking getRankingUser(Integer uid);
+
+    /**
+     * 竞赛中是否有未完成判题的提交
+     */
+    boolean hasUnjudged(Integer cid);
+
+    /**
+     * 竞赛结束后保存的最终排名
+     */
+    ContestRanking getFinal(Integer cid);
+
+    /**
+     * 保存最终排名，已存在时忽略
+     */
+    int saveFinal(ContestRanking ranking);
+
+    int deleteFinal(Integer cid);
 
     int deleteByUser(Integer uid);
 }
@@ -1,6 +1,8 @@
 package cloud.oj.core.dao;
 
 import cloud.oj.core.entity.Solution;
+import cloud.oj.core.entity.SolutionKey;
+import cloud.oj.core.entity.Timeline;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
 
@@ -27,10 +29,17 @@ public interface SolutionDao {
             """)
     Integer getResult(Integer uid, Integer pid);
 
+    Solution getSolutionByUidAndTime(Integer uid, Long time, boolean showPassed);
+
     /**
-     * 隔离级别：读未提交
+     * 一次查询多个提交，包括 uid、submitTime、total 和 passed
      */
-    Solution getSolutionByUidAndTime(Integer uid, Long time, boolean showPassed);
+    List<Solution> getSolutionsByUidAndTime(List<SolutionKey> keys);
+
+    /**
+     * 按 solutionId 一次查询多个提交，包括 uid、submitTime、total 和 passed
+     */
+    List<Solution> getSolutionsById(List<Integer> ids);
 
     Optional<Solution> getSolution(Integer uid, Integer sid, boolean showPassed);
 
@@ -39,7 +48,29 @@ public interface SolutionDao {
             from source_code
             where solution_id = #{sid}
             """)
-    String getSourceCode(Integer sid);
+    Optional<byte[]> getCompressedSourceCode(Integer sid);
+
+    /**
+     * 查询代码，解压后返回
+     */
+    default String getSourceCode(Integer sid) {
+        return getCompressedSourceCode(sid).map(SourceCodec::decode).orElse(null);
+    }
+
+    @Select("""
+            select trace_id,
+                   accept_at,
+                   insert_at,
+                   dequeue_at,
+                   compile_start,
+                   compile_end,
+                   run_start,
+                   run_end,
+                   persist_at
+            from solution_timeline
+            where solution_id = #{sid}
+            """)
+    Timeline getTimeline(Integer sid);
 
     List<List<?>> getSolutionsByUser(Integer uid, int start, int limit, Integer filter, String filterValue);
 
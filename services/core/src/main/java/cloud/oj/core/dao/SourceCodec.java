@@ -0,0 +1,154 @@
+package cloud.oj.core.dao;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * 源代码解压，与判题服务的 SourceCodec 使用相同的格式和字典
+ * <p>压缩后的数据以 {@link #MAGIC} 开头，其余视为未压缩的 UTF-8 文本(旧数据)</p>
+ * <p>修改字典时两边需要同步，启动时由 {@link #verify()} 检查</p>
+ */
+public final class SourceCodec {
+
+    // 0x00 不会出现在代码文本的开头，第三个字节为字典版本
+    private static final byte[] MAGIC = {0x00, 'Z', 0x01};
+
+    /**
+     * 常见代码片段，越常用的越靠后
+     */
+    private static final byte[] DICTIONARY = ("""
+            package main
+            import "fmt"
+            func main() {
+            	fmt.Println(
+            using System;
+            class Program {
+                static void Main(string[] args) {
+                    Console.WriteLine(
+            fun main() {
+                val n = readLine()!!.toInt()
+                println(
+            const readline = require('readline');
+            console.log(
+            #!/bin/bash
+            read -r
+            echo $((
+            import sys
+            input = sys.stdin.readline
+            n = int(input())
+            a = list(map(int, input().split()))
+            for i in range(n):
+            print(
+            import java.io.*;
+            import java.util.*;
+            import java.util.Scanner;
+            public class Solution {
+                public static void main(String[] args) {
+                    Scanner sc = new Scanner(System.in);
+                    int n = sc.nextInt();
+                    System.out.println(
+            #include <stdio.h>
+            #include <stdlib.h>
+            #include <string.h>
+            #include <math.h>
+            int main(void) {
+                scanf("%d", &n);
+                printf("%d\\n",
+            #include <iostream>
+            #include <vector>
+            #include <algorithm>
+            #include <cstring>
+            #include <string>
+            #include <bits/stdc++.h>
+            using namespace std;
+            typedef long long ll;
+            const int N = 100010;
+            int main() {
+                ios::sync_with_stdio(false);
+                cin.tie(0);
+                int n, m;
+                cin >> n;
+                cout << ans << endl;
+                for (int i = 0; i < n; i++) {
+                    for (int j = 0; j < m; j++) {
+                    if (
+                    } else {
+                    }
+                }
+                return 0;
+            }
+            """).getBytes(StandardCharsets.UTF_8);
+
+    // DICTIONARY 的 CRC32，两个服务的值相同；修改字典时同时修改此值和 MAGIC 中的版本
+    private static final long DICTIONARY_CRC = 0x716E550CL;
+
+    private SourceCodec() {
+    }
+
+    /**
+     * 启动时检查字典与另一个服务的是否一致，不一致时已保存的代码无法解压
+     */
+    public static void verify() {
+        var crc = new CRC32();
+        crc.update(DICTIONARY);
+
+        if (crc.getValue() != DICTIONARY_CRC) {
+            throw new IllegalStateException(String.format("源代码压缩字典已改变: %08X", crc.getValue()));
+        }
+    }
+
+    static String decode(byte[] data) {
+        if (data == null) {
+            return null;
+        }
+
+        if (!isEncoded(data)) {
+            return new String(data, StandardCharsets.UTF_8);
+        }
+
+        var inflater = new Inflater();
+
+        try {
+            inflater.setInput(data, MAGIC.length, data.length - MAGIC.length);
+            var output = new ByteArrayOutputStream(data.length * 4);
+            var buffer = new byte[4096];
+
+            while (!inflater.finished()) {
+                var n = inflater.inflate(buffer);
+
+                if (n == 0) {
+                    if (inflater.needsDictionary()) {
+                        inflater.setDictionary(DICTIONARY);
+                    } else if (inflater.needsInput()) {
+                        throw new DataFormatException("数据不完整");
+                    }
+                }
+
+                output.write(buffer, 0, n);
+            }
+
+            return output.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("源代码解压失败: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static boolean isEncoded(byte[] data) {
+        if (data.length < MAGIC.length) {
+            return false;
+        }
+
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
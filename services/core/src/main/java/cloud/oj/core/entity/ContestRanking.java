@@ -0,0 +1,23 @@
+package cloud.oj.core.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 竞赛结束后保存的最终排名
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContestRanking {
+    private Integer contestId;
+    // 带引号的 MD5
+    private String etag;
+    // gzip 压缩的 JSON
+    private byte[] data;
+    // 毫秒级
+    private Long createAt;
+}
@@ -20,6 +20,7 @@ public class Solution {
 
     private Integer solutionId;
     private Integer problemId;
+    private Integer contestId;
     private String title;
     private Integer uid;
     private Integer passed;
@@ -37,6 +38,8 @@ public class Solution {
     private Long submitTime;
     private String errorInfo;
     private String sourceCode;
+    // 各阶段的时间，仅管理员查询
+    private Timeline timeline;
 
     public void setState(Integer state) {
         this.state = state;
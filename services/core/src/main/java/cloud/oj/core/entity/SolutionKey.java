@@ -0,0 +1,9 @@
+package cloud.oj.core.entity;
+
+/**
+ * 按用户和提交时间查找提交
+ *
+ * @param submitTime UNIX 时间戳(13 位)
+ */
+public record SolutionKey(Integer uid, Long submitTime) {
+}
@@ -0,0 +1,26 @@
+package cloud.oj.core.entity;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 提交各阶段的时间(毫秒级时间戳)，由判题服务写入
+ */
+@Getter
+@Setter
+public class Timeline {
+    // 网关生成的关联 Id
+    private String traceId;
+    // 接收提交
+    private Long acceptAt;
+    // 写入数据库
+    private Long insertAt;
+    // 判题服务取出
+    private Long dequeueAt;
+    private Long compileStart;
+    private Long compileEnd;
+    private Long runStart;
+    private Long runEnd;
+    // 判题结果写入数据库
+    private Long persistAt;
+}
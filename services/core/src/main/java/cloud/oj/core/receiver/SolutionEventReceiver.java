@@ -0,0 +1,30 @@
+package cloud.oj.core.receiver;
+
+import cloud.oj.core.component.ContestScoreboard;
+import cloud.oj.core.component.VerdictHub;
+import cloud.oj.core.entity.Solution;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * 接收判题服务发布的提交事件
+ */
+@Component
+@RequiredArgsConstructor
+public class SolutionEventReceiver {
+
+    private final ContestScoreboard contestScoreboard;
+
+    private final VerdictHub verdictHub;
+
+    /**
+     * 事件只用于推送和内存中的排名，自动确认，丢失时由客户端重新获取或排名定时重新生成
+     * <p>{@link VerdictHub} 会修改事件，先更新排名</p>
+     */
+    @RabbitListener(queues = "#{solutionEventQueue.name}")
+    public void handleEvent(Solution event) {
+        contestScoreboard.apply(event);
+        verdictHub.publish(event);
+    }
+}
@@ -1,5 +1,6 @@
 package cloud.oj.core.service;
 
+import cloud.oj.core.component.RankingCache;
 import cloud.oj.core.dao.ContestDao;
 import cloud.oj.core.dao.InviteeDao;
 import cloud.oj.core.dao.ProblemDao;
@@ -32,6 +33,8 @@ public class ContestService {
 
     private final SolutionDao solutionDao;
 
+    private final RankingCache rankingCache;
+
     /**
      * 为竞赛生成新邀请码
      */
@@ -84,6 +87,7 @@ public class ContestService {
 
     public HttpStatus updateContest(Contest contest) {
         if (contestDao.updateContest(contest) == 1) {
+            rankingCache.invalidate(contest.getContestId());
             return HttpStatus.OK;
         } else {
             var msg = String.format("竞赛(%d)更新失败", contest.getContestId());
@@ -109,6 +113,7 @@ public class ContestService {
             throw new GenericException(HttpStatus.GONE, String.format("竞赛(%d)不存在", contestId));
         }
 
+        rankingCache.invalidate(contestId);
         return HttpStatus.NO_CONTENT;
     }
 
@@ -120,6 +125,7 @@ public class ContestService {
             contestDao.setProblemOrder(contestId, p, order.get());
             order.addAndGet(1);
         });
+        rankingCache.invalidate(contestId);
     }
 
     public List<List<?>> getProblemsNotInContest(Integer contestId, int page, int limit) {
@@ -160,6 +166,7 @@ public class ContestService {
         }
 
         if (contestDao.addProblem(contestId, problemId) == 1) {
+            rankingCache.invalidate(contestId);
             return HttpStatus.CREATED;
         } else {
             throw new GenericException(HttpStatus.BAD_REQUEST, "无法添加题目");
@@ -168,6 +175,7 @@ public class ContestService {
 
     public HttpStatus removeProblem(Integer contestId, Integer problemId) {
         if (contestDao.removeProblem(contestId, problemId) == 1) {
+            rankingCache.invalidate(contestId);
             return HttpStatus.NO_CONTENT;
         } else {
             throw new GenericException(HttpStatus.GONE, String.format("题目(%d)不存在", problemId));
@@ -1,8 +1,10 @@
 package cloud.oj.core.service;
 
+import cloud.oj.core.component.VerdictHub;
 import cloud.oj.core.dao.SolutionDao;
+import cloud.oj.core.dao.SourceCodec;
 import cloud.oj.core.entity.Solution;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -12,20 +14,24 @@ import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class SolutionService {
-    private static final int MAX_COUNT = 180;
-
     private final SolutionDao solutionDao;
 
     private final SystemSettings systemSettings;
 
-    private final ObjectMapper objectMapper;
+    private final VerdictHub verdictHub;
+
+    /**
+     * 检查源代码压缩字典与判题服务的是否一致
+     */
+    @PostConstruct
+    public void init() {
+        SourceCodec.verify();
+    }
 
     @Transactional(isolation = Isolation.READ_UNCOMMITTED)
     public List<List<?>> getSolutions(Integer uid, Integer page, Integer limit, Integer filter, String filterValue) {
@@ -33,59 +39,46 @@ public class SolutionService {
     }
 
     /**
-     * 根据 id 获取提交
-     * <p>隔离级别：读未提交</p>
-     * <p>开启了新的线程，不可使用声明式事务，隔离级别在 SQL 语句中设置</p>
+     * 获取判题结果
+     * <p>由 {@link VerdictHub} 在判题服务发布事件后推送</p>
      *
      * @return {@link SseEmitter}
      */
     public SseEmitter getSolutionByUidAndTime(Integer uid, Long time) {
-        var emitter = new SseEmitter(0L);
-        var executor = Executors.newSingleThreadExecutor();
-        var settings = systemSettings.getSettings();
-
-        executor.execute(() -> {
-            var count = 0;
-            try {
-                while (true) {
-                    TimeUnit.MILLISECONDS.sleep(500);
-                    var result = solutionDao.getSolutionByUidAndTime(uid, time, settings.isShowPassedPoints());
-
-                    if (result == null) {
-                        continue;
-                    }
-
-                    var event = SseEmitter.event()
-                            .data(objectMapper.writeValueAsString(result))
-                            .name("message");
-
-                    emitter.send(event);
-                    count += 1;
-
-                    if (result.getState() == 0) {
-                        emitter.complete();
-                        break;
-                    }
-
-                    if (count == MAX_COUNT) {
-                        log.warn("轮询超时");
-                        emitter.complete();
-                    }
-                }
-            } catch (Exception e) {
-                log.error(e.getMessage());
-            }
-        });
+        return verdictHub.subscribe(uid, time);
+    }
 
-        return emitter;
+    /**
+     * 按 solutionId 获取判题结果(直接提交模式)
+     *
+     * @return {@link SseEmitter}
+     */
+    public SseEmitter getSolutionStream(Integer uid, Integer solutionId) {
+        return verdictHub.subscribeById(uid, solutionId);
     }
 
     @Transactional(isolation = Isolation.READ_COMMITTED)
     public Optional<Solution> getSolution(Integer uid, Integer sid) {
+        return getSolution(uid, sid, false);
+    }
+
+    /**
+     * 查询提交
+     *
+     * @param admin 管理员可查询任意用户的提交，并带有各阶段的时间
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public Optional<Solution> getSolution(Integer uid, Integer sid, boolean admin) {
         var settings = systemSettings.getSettings();
-        var data = solutionDao.getSolution(uid, sid, settings.isShowPassedPoints());
+        var data = solutionDao.getSolution(admin ? null : uid, sid, admin || settings.isShowPassedPoints());
 
-        data.ifPresent((s) -> s.setSourceCode(solutionDao.getSourceCode(sid)));
+        data.ifPresent((s) -> {
+            s.setSourceCode(solutionDao.getSourceCode(sid));
+
+            if (admin) {
+                s.setTimeline(solutionDao.getTimeline(sid));
+            }
+        });
 
         return data;
     }
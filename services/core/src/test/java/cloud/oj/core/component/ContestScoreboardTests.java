@@ -0,0 +1,172 @@
+package cloud.oj.core.component;
+
+import cloud.oj.core.config.AppConfig;
+import cloud.oj.core.dao.ContestDao;
+import cloud.oj.core.dao.RankingDao;
+import cloud.oj.core.entity.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class ContestScoreboardTests {
+
+    private static final int CONTEST_ID = 1;
+
+    private static final long NOW = System.currentTimeMillis() / 1000;
+
+    private final AppConfig appConfig = mock(AppConfig.class);
+
+    private final ContestDao contestDao = mock(ContestDao.class);
+
+    ContestScoreboardTests() {
+        when(appConfig.getScoreboardTtl()).thenReturn(300);
+        var contest = new Contest();
+        contest.setContestId(CONTEST_ID);
+        contest.setContestName("test");
+        contest.setStartAt(NOW - 3600);
+        contest.setEndAt(NOW + 3600);
+        contest.setLanguages(0xff);
+        contest.setCreateAt(NOW - 7200);
+        when(contestDao.getContestById(CONTEST_ID)).thenReturn(contest);
+        when(contestDao.getProblemOrders(CONTEST_ID)).thenReturn(List.of(
+                order(1003, 2), order(1001, 0), order(1002, 1)
+        ));
+    }
+
+    private static ProblemOrder order(int problemId, int order) {
+        var o = new ProblemOrder(order);
+        o.setProblemId(problemId);
+        return o;
+    }
+
+    private static Ranking user(int uid) {
+        var r = new Ranking();
+        r.setUid(uid);
+        r.setUsername("user" + uid);
+        r.setNickname("user" + uid);
+        r.setHasAvatar(false);
+        r.setStar(false);
+        return r;
+    }
+
+    /**
+     * 随机生成已判题的提交，uid 4 不是普通用户
+     */
+    private static List<Solution> solutions(int count) {
+        var random = new Random(42);
+        var list = new ArrayList<Solution>(count);
+
+        for (int i = 1; i <= count; i++) {
+            var s = new Solution();
+            var result = random.nextInt(8);
+            var passRate = result == 0 ? 1 : random.nextInt(10) / 10D;
+            s.setSolutionId(i);
+            s.setContestId(CONTEST_ID);
+            s.setUid(1 + random.nextInt(4));
+            s.setProblemId(1001 + random.nextInt(3));
+            s.setState(0);
+            s.setResult(result);
+            s.setPassRate(passRate);
+            s.setScore(passRate * 100);
+            s.setSubmitTime(NOW * 1000 - 3_000_000 + i * 1000L);
+            list.add(s);
+        }
+
+        return list;
+    }
+
+    private ContestScoreboard scoreboard(List<Solution> judged) {
+        var rankingDao = mock(RankingDao.class);
+        when(rankingDao.getContestUsers(CONTEST_ID)).thenReturn(List.of(user(1), user(2), user(3)));
+        when(rankingDao.getJudgedForContest(CONTEST_ID)).thenReturn(judged);
+        when(rankingDao.getRankingUser(anyInt())).thenAnswer(invocation -> {
+            int uid = invocation.getArgument(0);
+            return uid == 4 ? null : user(uid);
+        });
+        return new ContestScoreboard(appConfig, rankingDao, contestDao);
+    }
+
+    /**
+     * 排名中用于比较的字段
+     */
+    private static List<String> view(RankingContest data) {
+        return data.getRanking().stream()
+                .map(r -> r.getRank() + " " + r.getUid() + " " + r.getCommitted() + " " + r.getPassed() + " "
+                        + r.getScore() + " " + r.getDetails().stream()
+                        .map(d -> d.getProblemId() + "=" + d.getResult() + "/" + d.getScore())
+                        .toList())
+                .toList();
+    }
+
+    @Test
+    void incrementalMatchesRebuild() {
+        var all = solutions(60);
+        var incremental = scoreboard(all.subList(0, 15));
+        incremental.get(CONTEST_ID);
+
+        for (var s : all.subList(15, all.size())) {
+            incremental.apply(s);
+        }
+
+        // 重复的事件
+        incremental.apply(all.get(20));
+
+        var rebuilt = scoreboard(all).get(CONTEST_ID);
+        var updated = incremental.get(CONTEST_ID);
+
+        assertFalse(rebuilt.getRanking().isEmpty());
+        assertEquals(List.of(1001, 1002, 1003), updated.getProblemIds());
+        assertEquals(view(rebuilt), view(updated));
+    }
+
+    @Test
+    void ignoresEventsNotJudged() {
+        var all = solutions(10);
+        var scoreboard = scoreboard(all.subList(0, 5));
+        var before = scoreboard.get(CONTEST_ID);
+
+        var running = all.get(5);
+        running.setState(1);
+        scoreboard.apply(running);
+
+        var practice = all.get(6);
+        practice.setContestId(null);
+        scoreboard.apply(practice);
+
+        assertSame(before, scoreboard.get(CONTEST_ID));
+    }
+
+    @Test
+    void snapshotReusedUntilChanged() {
+        var all = solutions(10);
+        var scoreboard = scoreboard(all.subList(0, 5));
+        var first = scoreboard.get(CONTEST_ID);
+
+        assertSame(first, scoreboard.get(CONTEST_ID));
+
+        scoreboard.apply(all.get(5));
+        assertNotSame(first, scoreboard.get(CONTEST_ID));
+    }
+
+    @Test
+    void invalidateReloads() {
+        var rankingDao = mock(RankingDao.class);
+        when(rankingDao.getContestUsers(CONTEST_ID)).thenReturn(List.of(user(1)));
+        when(rankingDao.getJudgedForContest(CONTEST_ID)).thenReturn(List.of());
+        var scoreboard = new ContestScoreboard(appConfig, rankingDao, contestDao);
+
+        scoreboard.get(CONTEST_ID);
+        scoreboard.get(CONTEST_ID);
+        verify(rankingDao, times(1)).getJudgedForContest(CONTEST_ID);
+
+        scoreboard.invalidate(CONTEST_ID);
+        scoreboard.get(CONTEST_ID);
+        verify(rankingDao, times(2)).getJudgedForContest(CONTEST_ID);
+    }
+}
@@ -0,0 +1,168 @@
+package cloud.oj.core.component;
+
+import cloud.oj.core.config.AppConfig;
+import cloud.oj.core.dao.RankingDao;
+import cloud.oj.core.entity.Contest;
+import cloud.oj.core.entity.ContestRanking;
+import cloud.oj.core.entity.RankingContest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RankingCacheTests {
+
+    private static final int CONTEST_ID = 1;
+
+    private final AppConfig appConfig = mock(AppConfig.class);
+
+    private final ContestScoreboard contestScoreboard = mock(ContestScoreboard.class);
+
+    private final RankingDao rankingDao = mock(RankingDao.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    RankingCacheTests() {
+        when(appConfig.getScoreboardTtl()).thenReturn(300);
+        // 每次查询都检查是否需要重新生成
+        when(appConfig.getRankingRebuildInterval()).thenReturn(0);
+    }
+
+    private RankingCache cache() {
+        return new RankingCache(appConfig, contestScoreboard, rankingDao, objectMapper);
+    }
+
+    private static RankingContest ranking(boolean ended, List<Integer> problemIds) {
+        var now = System.currentTimeMillis() / 1000;
+        var contest = new Contest();
+        contest.setContestId(CONTEST_ID);
+        contest.setContestName("test");
+        contest.setStartAt(now - 7200);
+        contest.setEndAt(ended ? now - 60 : now + 3600);
+        contest.setStarted(true);
+        contest.setEnded(ended);
+        var data = new RankingContest(contest);
+        data.setProblemIds(problemIds);
+        data.setRanking(List.of());
+        return data;
+    }
+
+    @Test
+    void etagIsHashOfJson() throws Exception {
+        var data = ranking(false, List.of(1001));
+        when(contestScoreboard.get(CONTEST_ID)).thenReturn(data);
+
+        var body = cache().get(CONTEST_ID);
+        var json = objectMapper.writeValueAsBytes(data);
+
+        assertArrayEquals(json, body.json());
+        assertEquals("\"" + DigestUtils.md5DigestAsHex(json) + "\"", body.etag());
+        assertFalse(body.ended());
+    }
+
+    @Test
+    void unchangedSnapshotReusesBytes() {
+        when(contestScoreboard.get(CONTEST_ID)).thenReturn(ranking(false, List.of(1001)));
+        var cache = cache();
+
+        var first = cache.get(CONTEST_ID);
+        var second = cache.get(CONTEST_ID);
+
+        assertSame(first.gzip(), second.gzip());
+        assertEquals(first.etag(), second.etag());
+    }
+
+    @Test
+    void changedSnapshotChangesEtag() {
+        when(contestScoreboard.get(CONTEST_ID))
+                .thenReturn(ranking(false, List.of(1001)))
+                .thenReturn(ranking(false, List.of(1001, 1002)));
+        var cache = cache();
+
+        var first = cache.get(CONTEST_ID);
+        var second = cache.get(CONTEST_ID);
+
+        assertNotEquals(first.etag(), second.etag());
+    }
+
+    @Test
+    void sameContentSameEtagAcrossInstances() {
+        when(contestScoreboard.get(CONTEST_ID))
+                .thenReturn(ranking(false, List.of(1001)))
+                .thenReturn(ranking(false, List.of(1001)));
+
+        assertEquals(cache().get(CONTEST_ID).etag(), cache().get(CONTEST_ID).etag());
+    }
+
+    @Test
+    void endedWithUnjudgedIsNotFinal() {
+        when(contestScoreboard.get(CONTEST_ID)).thenReturn(ranking(true, List.of(1001)));
+        when(rankingDao.hasUnjudged(CONTEST_ID)).thenReturn(true);
+
+        var body = cache().get(CONTEST_ID);
+
+        assertTrue(body.ended());
+        assertNotNull(body.source());
+        verify(rankingDao, never()).saveFinal(any());
+    }
+
+    @Test
+    void endedAndJudgedBecomesFinal() {
+        var saved = new AtomicReference<ContestRanking>();
+        when(contestScoreboard.get(CONTEST_ID)).thenReturn(ranking(true, List.of(1001)));
+        when(rankingDao.hasUnjudged(CONTEST_ID)).thenReturn(false);
+        when(rankingDao.saveFinal(any())).thenAnswer(invocation -> {
+            saved.set(invocation.getArgument(0));
+            return 1;
+        });
+        when(rankingDao.getFinal(CONTEST_ID)).thenAnswer(invocation -> saved.get());
+        var cache = cache();
+
+        var body = cache.get(CONTEST_ID);
+
+        // 从数据库重新生成后保存
+        verify(contestScoreboard).invalidate(CONTEST_ID);
+        assertNull(body.source());
+        assertTrue(body.ended());
+        assertEquals(saved.get().getEtag(), body.etag());
+
+        // 之后只返回保存的结果
+        assertSame(body, cache.get(CONTEST_ID));
+        verify(contestScoreboard, times(2)).get(CONTEST_ID);
+    }
+
+    @Test
+    void finalSavedByAnotherInstance() throws Exception {
+        var out = new ByteArrayOutputStream();
+
+        try (var gzip = new GZIPOutputStream(out)) {
+            gzip.write("{}".getBytes(StandardCharsets.UTF_8));
+        }
+
+        when(rankingDao.getFinal(CONTEST_ID))
+                .thenReturn(new ContestRanking(CONTEST_ID, "\"saved\"", out.toByteArray(), 0L));
+
+        var body = cache().get(CONTEST_ID);
+
+        assertEquals("\"saved\"", body.etag());
+        assertArrayEquals("{}".getBytes(StandardCharsets.UTF_8), body.json());
+        verify(contestScoreboard, never()).get(any());
+    }
+
+    @Test
+    void invalidateDeletesFinal() {
+        cache().invalidate(CONTEST_ID);
+
+        verify(contestScoreboard).invalidate(CONTEST_ID);
+        verify(rankingDao).deleteFinal(CONTEST_ID);
+    }
+}
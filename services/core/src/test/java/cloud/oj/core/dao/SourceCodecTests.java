@@ -0,0 +1,50 @@
+package cloud.oj.core.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SourceCodecTests {
+
+    private static final String C_SOURCE = """
+            #include <stdio.h>
+            int main() {
+                int a, b;
+                scanf("%d %d", &a, &b);
+                printf("%d\\n", a + b);
+                return 0;
+            }
+            """;
+
+    @Test
+    void dictionaryUnchanged() {
+        assertDoesNotThrow(SourceCodec::verify);
+    }
+
+    @Test
+    void decodesDataWrittenByJudge() {
+        // 判题服务压缩后保存的数据
+        var stored = Base64.getDecoder().decode("AFoBePkXGnWQw5JwMMMCKJCoo5BkjZoQFCBpASijloQ1PSgkKmgrwKSQLQUAimce3g==");
+
+        assertEquals(C_SOURCE, SourceCodec.decode(stored));
+    }
+
+    @Test
+    void decodesLegacyText() {
+        var legacy = "print(input())\n// 中文\n";
+
+        assertEquals(legacy, SourceCodec.decode(legacy.getBytes(StandardCharsets.UTF_8)));
+        assertEquals("", SourceCodec.decode(new byte[0]));
+        assertNull(SourceCodec.decode(null));
+    }
+
+    @Test
+    void rejectsTruncatedData() {
+        var stored = Base64.getDecoder().decode("AFoBePkXGnWQw5JwMMMCKJCoo5BkjZoQ");
+
+        assertThrows(IllegalArgumentException.class, () -> SourceCodec.decode(stored));
+    }
+}
@@ -63,10 +63,13 @@ public class WebFluxSecurityConfig {
                 .authorizeExchange(authorizeExchangeSpec -> authorizeExchangeSpec
                         .pathMatchers("/core/**").denyAll()
                         .pathMatchers("/judge/**").denyAll()
+                        .pathMatchers("/api/core/actuator/**").denyAll()
+                        .pathMatchers("/api/judge/actuator/**").denyAll()
                         .pathMatchers(HttpMethod.GET, "/api/core/user/profile").permitAll()
                         .pathMatchers(HttpMethod.PUT, "/api/core/user/profile").hasRole(Role.USER)
                         .pathMatchers("/api/core/user/admin/**").hasRole(Role.ADMIN)
                         .pathMatchers("/api/core/problem/admin/**").hasRole(Role.ADMIN)
+                        .pathMatchers("/api/core/solution/admin/**").hasRole(Role.ADMIN)
                         .pathMatchers("/api/core/solution/**").hasRole(Role.USER)
                         .pathMatchers("/api/core/contest/admin/**").hasRole(Role.ADMIN)
                         .pathMatchers("/api/core/contest/problem/**").hasRole(Role.USER)
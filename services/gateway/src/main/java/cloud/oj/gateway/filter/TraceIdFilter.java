@@ -0,0 +1,40 @@
+package cloud.oj.gateway.filter;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+/**
+ * 为转发的请求生成关联 Id
+ * <p>加在请求头和响应头中，判题服务随提交保存，用于排查单个提交</p>
+ * <p>客户端传入的值会被覆盖</p>
+ */
+@Component
+public class TraceIdFilter implements GlobalFilter, Ordered {
+
+    public static final String TRACE_ID = "X-Trace-Id";
+
+    @NonNull
+    @Override
+    public Mono<Void> filter(@NonNull ServerWebExchange exchange, @NonNull GatewayFilterChain chain) {
+        var traceId = UUID.randomUUID().toString();
+        exchange.getResponse().getHeaders().set(TRACE_ID, traceId);
+
+        return chain.filter(
+                exchange.mutate().request(
+                        exchange.getRequest().mutate().headers(headers -> headers.set(TRACE_ID, traceId)).build()
+                ).build()
+        );
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,115 @@
+package cloud.oj.judge.component;
+
+import cloud.oj.judge.config.AppConfig;
+import cloud.oj.judge.dao.ContestDao;
+import cloud.oj.judge.dao.InviteeDao;
+import cloud.oj.judge.dao.ProblemDao;
+import cloud.oj.judge.entity.Contest;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.Optional;
+
+/**
+ * 提交检查的缓存
+ * <p>缓存竞赛时间和语言、竞赛的邀请用户(uid 位图)、题目是否开放，到期后在后台刷新</p>
+ * <p>竞赛开始/结束按本地时间判断；邀请用户和题目开放的否定结果回查数据库，新加入的用户和刚开放的题目立即生效</p>
+ */
+@Component
+public class AdmissionCache {
+
+    private static final int MAX_SIZE = 1024;
+
+    private final InviteeDao inviteeDao;
+
+    private final ProblemDao problemDao;
+
+    private final LoadingCache<Integer, Optional<Contest>> contests;
+
+    private final LoadingCache<Integer, BitSet> invitees;
+
+    private final LoadingCache<Integer, Boolean> problems;
+
+    public AdmissionCache(AppConfig appConfig, ContestDao contestDao, InviteeDao inviteeDao,
+                          ProblemDao problemDao, MeterRegistry registry) {
+        this.inviteeDao = inviteeDao;
+        this.problemDao = problemDao;
+
+        var ttl = Duration.ofSeconds(appConfig.getAdmissionCacheTtl());
+
+        this.contests = Caffeine.newBuilder()
+                .maximumSize(MAX_SIZE)
+                .refreshAfterWrite(ttl)
+                .recordStats()
+                .build(id -> Optional.ofNullable(contestDao.getContest(id)));
+        this.invitees = Caffeine.newBuilder()
+                .maximumSize(MAX_SIZE)
+                .refreshAfterWrite(ttl)
+                .recordStats()
+                .build(this::loadInvitees);
+        this.problems = Caffeine.newBuilder()
+                .maximumSize(MAX_SIZE)
+                .refreshAfterWrite(ttl)
+                .recordStats()
+                .build(id -> Boolean.TRUE.equals(problemDao.isEnable(id)));
+
+        CaffeineCacheMetrics.monitor(registry, contests, "admission.contest");
+        CaffeineCacheMetrics.monitor(registry, invitees, "admission.invitee");
+        CaffeineCacheMetrics.monitor(registry, problems, "admission.problem");
+    }
+
+    public Optional<Contest> getContest(int contestId) {
+        return contests.get(contestId);
+    }
+
+    /**
+     * 用户是否被邀请参加竞赛
+     */
+    public boolean isInvitee(int contestId, int uid) {
+        var bitmap = invitees.get(contestId);
+
+        synchronized (bitmap) {
+            if (bitmap.get(uid)) {
+                return true;
+            }
+        }
+
+        if (Boolean.TRUE.equals(inviteeDao.checkInvitee(contestId, uid))) {
+            synchronized (bitmap) {
+                bitmap.set(uid);
+            }
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * 题目是否开放
+     */
+    public boolean isProblemEnabled(int problemId) {
+        if (problems.get(problemId)) {
+            return true;
+        }
+
+        var enabled = Boolean.TRUE.equals(problemDao.isEnable(problemId));
+
+        if (enabled) {
+            problems.put(problemId, true);
+        }
+
+        return enabled;
+    }
+
+    private BitSet loadInvitees(int contestId) {
+        var bitmap = new BitSet();
+        inviteeDao.getInvitees(contestId).forEach(bitmap::set);
+        return bitmap;
+    }
+}
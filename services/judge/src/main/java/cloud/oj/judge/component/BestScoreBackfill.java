@@ -0,0 +1,37 @@
+package cloud.oj.judge.component;
+
+import cloud.oj.judge.dao.RankingDao;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+/**
+ * 最高分记录为空时(首次升级)，从已判题的提交生成
+ * <p>在消息监听启动前执行，避免判题与生成同时修改最高分</p>
+ * <p>生成失败时启动失败，否则排名会按空的最高分记录累加</p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BestScoreBackfill implements SmartInitializingSingleton {
+
+    private final RankingDao rankingDao;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            if (!rankingDao.isBestScoreEmpty()) {
+                return;
+            }
+
+            var start = System.currentTimeMillis();
+            var rows = rankingDao.backfillBestScore();
+            log.info("生成最高分记录: {} 条, 耗时 {} ms", rows, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("生成最高分记录失败: {}", ExceptionUtils.getRootCause(e).getMessage());
+            throw new IllegalStateException("生成最高分记录失败", e);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package cloud.oj.judge.component;
+
+import cloud.oj.judge.config.AppConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * 编译缓存
+ * <p>以 hash(语言, 编译命令, 源码) 为键保存编译产物，容量超出时按 LRU 淘汰</p>
+ * <p>命中时将产物放入代码目录，跳过编译；恢复期间条目不会被淘汰</p>
+ * <p>缓存与工作区在同一文件系统时硬链接，否则复制；工作区挂载为 tmpfs 时每个工作区是独立的文件系统，总是复制</p>
+ * <p>命中时更新条目目录的修改时间，重启后按修改时间恢复 LRU 顺序</p>
+ */
+@Slf4j
+@Component
+public class CompileCache {
+
+    private final File cacheDir;
+
+    private final long capacity;
+
+    // key -> 产物大小，按访问顺序排列
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // 正在恢复的条目 -> 引用数，淘汰时跳过
+    private final HashMap<String, Integer> pinned = new HashMap<>();
+
+    private long size = 0;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    public CompileCache(AppConfig appConfig, MeterRegistry registry) {
+        this.cacheDir = new File(appConfig.getFileDir() + "cache/compile");
+        this.capacity = (long) appConfig.getCompileCacheSize() << 20;
+        this.hits = Counter.builder("judge.compile.cache")
+                .tag("result", "hit")
+                .register(registry);
+        this.misses = Counter.builder("judge.compile.cache")
+                .tag("result", "miss")
+                .register(registry);
+
+        Gauge.builder("judge.compile.cache.size", this, CompileCache::getSize)
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("judge.compile.cache.hit.ratio", this, CompileCache::getHitRatio)
+                .register(registry);
+
+        if (isEnabled()) {
+            loadEntries();
+        }
+    }
+
+    public boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    /**
+     * 计算缓存键
+     *
+     * @param cmd 编译命令
+     * @return SHA-256
+     */
+    public static String key(int language, String[] cmd, String source) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(language).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.join(" ", cmd).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(source.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 将缓存的编译产物放入代码目录
+     * <p>失败时删除已放入的文件，代码目录恢复原状</p>
+     *
+     * @return 是否命中
+     */
+    public boolean restore(String key, File solutionDir) {
+        synchronized (this) {
+            if (entries.get(key) == null) {
+                misses.increment();
+                return false;
+            }
+
+            pinned.merge(key, 1, Integer::sum);
+        }
+
+        var linked = new ArrayList<Path>();
+
+        try {
+            var files = new File(cacheDir, key).listFiles();
+
+            if (files == null) {
+                throw new IOException("目录不存在");
+            }
+
+            for (var file : files) {
+                var dst = solutionDir.toPath().resolve(file.getName());
+                linked.add(dst);
+                link(file.toPath(), dst);
+            }
+        } catch (IOException e) {
+            log.warn("读取编译缓存失败({}): {}", key, e.getMessage());
+            linked.forEach(path -> FileUtils.deleteQuietly(path.toFile()));
+            unpin(key, true);
+            misses.increment();
+            return false;
+        }
+
+        if (!new File(cacheDir, key).setLastModified(System.currentTimeMillis())) {
+            log.debug("更新编译缓存修改时间失败({})", key);
+        }
+
+        unpin(key, false);
+        hits.increment();
+        return true;
+    }
+
+    /**
+     * 保存编译产物(代码目录中除源文件以外的文件)
+     *
+     * @param source 源文件名
+     */
+    public void store(String key, File solutionDir, String source) {
+        synchronized (this) {
+            if (entries.containsKey(key)) {
+                return;
+            }
+        }
+
+        var files = solutionDir.listFiles((dir, name) -> !name.equals(source));
+
+        if (files == null || files.length == 0) {
+            return;
+        }
+
+        var tmp = new File(cacheDir, key + ".tmp-" + Thread.currentThread().getId());
+        var target = new File(cacheDir, key);
+
+        try {
+            FileUtils.forceMkdir(tmp);
+
+            for (var file : files) {
+                if (file.isDirectory()) {
+                    FileUtils.copyDirectory(file, new File(tmp, file.getName()));
+                } else {
+                    Files.copy(file.toPath(), tmp.toPath().resolve(file.getName()), StandardCopyOption.COPY_ATTRIBUTES);
+                }
+            }
+
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("写入编译缓存失败({}): {}", key, e.getMessage());
+            FileUtils.deleteQuietly(tmp);
+            return;
+        }
+
+        synchronized (this) {
+            var bytes = FileUtils.sizeOfDirectory(target);
+            entries.put(key, bytes);
+            size += bytes;
+            evict();
+        }
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public double getHitRatio() {
+        var total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    /**
+     * 淘汰最久未使用且未在恢复中的条目，直到容量不超出限制
+     */
+    private void evict() {
+        var it = entries.entrySet().iterator();
+
+        while (size > capacity && it.hasNext()) {
+            var entry = it.next();
+
+            if (pinned.containsKey(entry.getKey())) {
+                continue;
+            }
+
+            it.remove();
+            size -= entry.getValue();
+            FileUtils.deleteQuietly(new File(cacheDir, entry.getKey()));
+        }
+    }
+
+    /**
+     * 恢复结束，跳过的淘汰在此补上
+     *
+     * @param broken 条目已损坏，没有其他线程使用时移除
+     */
+    private synchronized void unpin(String key, boolean broken) {
+        pinned.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+
+        if (broken && !pinned.containsKey(key)) {
+            remove(key);
+        }
+
+        evict();
+    }
+
+    private synchronized void remove(String key) {
+        var bytes = entries.remove(key);
+
+        if (bytes != null) {
+            size -= bytes;
+        }
+
+        FileUtils.deleteQuietly(new File(cacheDir, key));
+    }
+
+    /**
+     * 启动时按修改时间(最近一次写入或命中)载入已有的缓存条目
+     */
+    private void loadEntries() {
+        if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+            log.error("创建目录失败: {}", cacheDir);
+            return;
+        }
+
+        var dirs = cacheDir.listFiles(File::isDirectory);
+
+        if (dirs == null) {
+            return;
+        }
+
+        Arrays.sort(dirs, Comparator.comparingLong(File::lastModified));
+
+        synchronized (this) {
+            for (var dir : dirs) {
+                if (dir.getName().contains(".tmp-")) {
+                    FileUtils.deleteQuietly(dir);
+                    continue;
+                }
+
+                var bytes = FileUtils.sizeOfDirectory(dir);
+                entries.put(dir.getName(), bytes);
+                size += bytes;
+            }
+
+            evict();
+        }
+
+        log.info("编译缓存: {} 个条目, {} KiB", entries.size(), size >> 10);
+    }
+
+    /**
+     * 硬链接文件，跨文件系统或目录时复制
+     */
+    private static void link(Path src, Path dst) throws IOException {
+        if (Files.isDirectory(src)) {
+            FileUtils.copyDirectory(src.toFile(), dst.toFile());
+            return;
+        }
+
+        try {
+            Files.createLink(dst, src);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            Files.copy(src, dst, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+    }
+}
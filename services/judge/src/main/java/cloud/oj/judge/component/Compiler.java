@@ -1,29 +1,32 @@
 package cloud.oj.judge.component;
 
-import cloud.oj.judge.config.AppConfig;
 import cloud.oj.judge.constant.Language;
 import cloud.oj.judge.constant.State;
-import cloud.oj.judge.dao.SolutionDao;
 import cloud.oj.judge.entity.Compile;
 import cloud.oj.judge.entity.Solution;
 import cloud.oj.judge.error.UnsupportedLanguageError;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.IOUtils;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class Compiler {
 
+    // 编译超时时间(秒)
+    private static final int TIMEOUT = 60;
+
+    // 保留的编译器输出(字节)
+    private static final int OUTPUT_LIMIT = 64 * 1024;
+
     private static final Map<Integer, String[]> CMD = Map.of(
             Language.C, new String[]{"gcc", "-std=c11", "-fmax-errors=3", "-Wfatal-errors", "Solution.c", "-o", "Solution", "-lm"},
             Language.CPP, new String[]{"g++", "-std=c++17", "-fmax-errors=3", "-Wfatal-errors", "Solution.cpp", "-o", "Solution"},
@@ -33,11 +36,17 @@ public class Compiler {
             Language.GO, new String[]{"go", "build", "Solution.go"}
     );
 
-    private final AppConfig appConfig;
+    private final StateBuffer stateBuffer;
+
+    private final SolutionEvents solutionEvents;
+
+    private final CompileCache compileCache;
 
-    private final SolutionDao solutionDao;
+    private final InProcessJavac inProcessJavac;
 
-    private final ProcessBuilder processBuilder = new ProcessBuilder();
+    private final ProcessLauncher processLauncher;
+
+    private final WorkspacePool workspacePool;
 
     private static class CompileError extends Exception {
         CompileError(String msg) {
@@ -47,62 +56,101 @@ public class Compiler {
 
     /**
      * 编译
+     * <p>命中编译缓存时直接使用缓存的产物，不进入编译状态</p>
+     *
+     * @param workspace 工作区目录
      */
-    public Compile compile(Solution solution) {
+    public Compile compile(Solution solution, File workspace) {
         var solutionId = solution.getSolutionId();
         var language = solution.getLanguage();
         var sourceCode = solution.getSourceCode();
-        // 更新为正在编译状态
-        solutionDao.updateState(solutionId, State.COMPILING);
 
         try {
             Language.check(language);
-            var src = writeCode(solutionId, language, sourceCode);
+            var src = writeCode(workspace, language, sourceCode);
 
             if (src.isEmpty()) {
                 return new Compile(solutionId, -1, "编译错误: 无法写入代码");
             }
 
-            return compileSource(solutionId, language);
+            if (!CMD.containsKey(language) || !compileCache.isEnabled()) {
+                // 更新为正在编译状态
+                stateBuffer.update(solutionId, State.COMPILING);
+                solutionEvents.publish(solution, State.COMPILING);
+                return checkQuota(compileSource(solutionId, language, sourceCode, workspace), workspace);
+            }
+
+            var key = CompileCache.key(language, CMD.get(language), sourceCode);
+
+            if (compileCache.restore(key, workspace)) {
+                return new Compile(solutionId, 0);
+            }
+
+            // 更新为正在编译状态
+            stateBuffer.update(solutionId, State.COMPILING);
+            solutionEvents.publish(solution, State.COMPILING);
+            var compile = checkQuota(compileSource(solutionId, language, sourceCode, workspace), workspace);
+
+            if (compile.getState() == 0) {
+                compileCache.store(key, workspace, new File(src).getName());
+            }
+
+            return compile;
         } catch (UnsupportedLanguageError e) {
             log.warn("编译错误: {}", e.getMessage());
             return new Compile(solutionId, -1, e.getMessage());
         }
     }
 
+    /**
+     * 工作区未挂载为 tmpfs 时，检查编译产物是否超出容量
+     */
+    private Compile checkQuota(Compile compile, File workspace) {
+        if (compile.getState() == 0 && workspacePool.exceedsQuota(workspace)) {
+            return new Compile(compile.getSolutionId(), -1, "编译错误: 编译产物超出大小限制");
+        }
+
+        return compile;
+    }
+
     /**
      * 根据语言类型编译源码
      *
      * @return {@link Compile} 编译结果
      */
-    private Compile compileSource(Integer solutionId, Integer language) {
-        var solutionDir = appConfig.getCodeDir() + solutionId;
-
+    private Compile compileSource(Integer solutionId, Integer language, String sourceCode, File solutionDir) {
         try {
             if (language == Language.PYTHON || language == Language.BASH || language == Language.JAVA_SCRIPT) {
                 return new Compile(solutionId, 0);
             }
 
-            processBuilder.command(CMD.get(language));
-            processBuilder.directory(new File(solutionDir));
+            // 进程内编译没有空闲线程时使用 javac 进程
+            if (language == Language.JAVA && inProcessJavac.isEnabled()
+                    && inProcessJavac.compile(sourceCode, solutionDir, TIMEOUT)) {
+                return new Compile(solutionId, 0, null);
+            }
 
-            var process = processBuilder.start();
+            var command = new ProcessLauncher.Command(
+                    "compile",
+                    List.of(CMD.get(language)),
+                    solutionDir,
+                    Duration.ofSeconds(TIMEOUT),
+                    OUTPUT_LIMIT
+            );
+            var result = processLauncher.run(command);
 
-            if (process.waitFor(60, TimeUnit.SECONDS)) {
-                if (process.exitValue() == 0) {
-                    return new Compile(solutionId, 0, null);
-                } else {
-                    String error = IOUtils.toString(process.getErrorStream(), StandardCharsets.UTF_8);
-                    throw new CompileError(error);
-                }
-            } else {
-                process.destroy();
+            if (result.timedOut()) {
                 throw new InterruptedException("编译超时");
+            } else if (result.exitCode() == 0) {
+                return new Compile(solutionId, 0, null);
+            } else {
+                // 部分编译器(如 mcs)将错误信息输出到 stdout
+                throw new CompileError(result.stderr().isEmpty() ? result.stdout() : result.stderr());
             }
         } catch (IOException e) {
             log.error("编译错误({}): {}", solutionId, e.getMessage());
             return new Compile(solutionId, -1, e.getMessage());
-        } catch (InterruptedException | CompileError e) {
+        } catch (InterruptedException | CompileError | InProcessJavac.CompileError e) {
             return new Compile(solutionId, -1, e.getMessage());
         }
     }
@@ -112,14 +160,7 @@ public class Compiler {
      *
      * @return 文件路径
      */
-    private String writeCode(Integer solutionId, int language, String source) {
-        var solutionDir = new File(appConfig.getCodeDir() + solutionId);
-
-        if (!solutionDir.mkdirs()) {
-            log.error("创建目录失败: {}", solutionDir.getName());
-            return "";
-        }
-
+    private String writeCode(File solutionDir, int language, String source) {
         var sourceFile = new File(solutionDir + "/Solution" + Language.getExt(language));
 
         try {
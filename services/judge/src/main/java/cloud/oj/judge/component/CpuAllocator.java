@@ -0,0 +1,216 @@
+package cloud.oj.judge.component;
+
+import cloud.oj.judge.config.AppConfig;
+import cloud.oj.judge.error.GenericException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * 判题 CPU 分配，运行判题程序前租用，结束后归还
+ * <p>同一物理核心的超线程(SMT)同时只租出一个，避免两个计时的程序互相干扰</p>
+ * <p>judge-cpus 为初始配置，运行期间可通过管理接口修改</p>
+ */
+@Slf4j
+@Component
+public class CpuAllocator {
+
+    private static final String SIBLINGS = "/sys/devices/system/cpu/cpu%d/topology/thread_siblings_list";
+
+    private static final Path STATUS = Path.of("/proc/self/status");
+
+    private static final Path CPUSET = Path.of("/sys/fs/cgroup/cpuset.cpus.effective");
+
+    // cpu -> 物理核心(同一核心中编号最小的 CPU)
+    private final Map<Integer, Integer> cores = new HashMap<>();
+
+    // 已租出的 CPU
+    private final Set<Integer> leased = new HashSet<>();
+
+    // 已租出的 CPU 所在的核心
+    private final Set<Integer> busyCores = new HashSet<>();
+
+    private List<Integer> cpus;
+
+    public CpuAllocator(AppConfig appConfig, MeterRegistry registry) {
+        resize(appConfig.getCpus());
+        Gauge.builder("judge.cpu.slots", this, CpuAllocator::getSlots)
+                .description("可同时运行的判题程序数量")
+                .register(registry);
+        Gauge.builder("judge.cpu.leased", this, CpuAllocator::leasedCount)
+                .description("正在运行判题程序的 CPU 数量")
+                .register(registry);
+    }
+
+    /**
+     * 租用 CPU，没有空闲的核心时阻塞
+     */
+    public synchronized int lease() throws InterruptedException {
+        Integer cpu;
+
+        while ((cpu = pick()) == null) {
+            wait();
+        }
+
+        take(cpu);
+        return cpu;
+    }
+
+    /**
+     * 租用 CPU，不阻塞
+     *
+     * @return 没有空闲的核心时为 null
+     */
+    public synchronized Integer tryLease() {
+        var cpu = pick();
+
+        if (cpu != null) {
+            take(cpu);
+        }
+
+        return cpu;
+    }
+
+    public synchronized void release(int cpu) {
+        if (leased.remove(cpu)) {
+            busyCores.remove(cores.get(cpu));
+            notifyAll();
+        }
+    }
+
+    /**
+     * 修改判题 CPU，已租出且被移除的 CPU 归还后不再使用
+     *
+     * @return 可同时运行的数量(物理核心数)
+     */
+    public synchronized int resize(List<Integer> cpus) {
+        if (cpus == null || cpus.isEmpty()) {
+            throw new GenericException(HttpStatus.BAD_REQUEST, "CPU 列表为空");
+        }
+
+        var allowed = allowedCpus();
+
+        for (var cpu : cpus) {
+            if (cpu == null || !allowed.contains(cpu)) {
+                throw new GenericException(HttpStatus.BAD_REQUEST, "CPU 不存在或不可用: " + cpu);
+            }
+        }
+
+        this.cpus = cpus.stream().distinct().sorted().toList();
+        this.cpus.forEach(cpu -> cores.computeIfAbsent(cpu, CpuAllocator::core));
+        log.info("判题 CPU: {}, 物理核心: {} 个", this.cpus, getSlots());
+        notifyAll();
+        return getSlots();
+    }
+
+    public synchronized List<Integer> getCpus() {
+        return cpus;
+    }
+
+    /**
+     * 可同时运行的数量(物理核心数)
+     */
+    public synchronized int getSlots() {
+        return (int) cpus.stream().map(cores::get).distinct().count();
+    }
+
+    private synchronized int leasedCount() {
+        return leased.size();
+    }
+
+    /**
+     * 选择空闲核心上的 CPU
+     */
+    private Integer pick() {
+        for (var cpu : cpus) {
+            if (!busyCores.contains(cores.get(cpu))) {
+                return cpu;
+            }
+        }
+
+        return null;
+    }
+
+    private void take(int cpu) {
+        leased.add(cpu);
+        busyCores.add(cores.get(cpu));
+    }
+
+    /**
+     * 读取 CPU 所在的物理核心，读取失败时视为独立核心
+     * <p>thread_siblings_list 格式如 0,4 或 0-1</p>
+     */
+    private static int core(int cpu) {
+        try {
+            var list = parseList(Files.readString(Path.of(String.format(SIBLINGS, cpu))));
+            return Math.min(cpu, Collections.min(list));
+        } catch (IOException | RuntimeException e) {
+            return cpu;
+        }
+    }
+
+    /**
+     * 当前进程可以使用的 CPU
+     * <p>依次读取进程的亲和性(/proc/self/status 的 Cpus_allowed_list，已包含 cgroup cpuset 的限制)、
+     * cgroup v2 的 cpuset.cpus.effective，都不可用时为 0 到 availableProcessors - 1</p>
+     */
+    static Set<Integer> allowedCpus() {
+        try (var lines = Files.lines(STATUS)) {
+            var list = lines.filter(line -> line.startsWith("Cpus_allowed_list:")).findFirst();
+
+            if (list.isPresent()) {
+                return parseList(list.get().substring(list.get().indexOf(':') + 1));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("读取 {} 失败: {}", STATUS, e.getMessage());
+        }
+
+        try {
+            return parseList(Files.readString(CPUSET));
+        } catch (IOException | RuntimeException e) {
+            log.debug("读取 {} 失败: {}", CPUSET, e.getMessage());
+        }
+
+        var cpus = new TreeSet<Integer>();
+
+        for (int i = 0; i < Runtime.getRuntime().availableProcessors(); i++) {
+            cpus.add(i);
+        }
+
+        return cpus;
+    }
+
+    /**
+     * 解析内核的 CPU 列表格式，如 0-3,8,10-11
+     */
+    static Set<Integer> parseList(String list) {
+        var cpus = new TreeSet<Integer>();
+
+        for (var range : list.trim().split(",")) {
+            if (range.isBlank()) {
+                continue;
+            }
+
+            var bounds = range.trim().split("-");
+            var from = Integer.parseInt(bounds[0]);
+            var to = bounds.length > 1 ? Integer.parseInt(bounds[1]) : from;
+
+            for (int i = from; i <= to; i++) {
+                cpus.add(i);
+            }
+        }
+
+        if (cpus.isEmpty()) {
+            throw new IllegalArgumentException("CPU 列表为空");
+        }
+
+        return cpus;
+    }
+}
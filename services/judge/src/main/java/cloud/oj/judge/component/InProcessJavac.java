@@ -0,0 +1,304 @@
+package cloud.oj.judge.component;
+
+import cloud.oj.judge.config.AppConfig;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.tools.*;
+import java.io.*;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 进程内的 Java 编译器
+ * <p>使用 {@link JavaCompiler}，源码和 class 文件都在内存中，编译成功后才写入代码目录</p>
+ * <p>编译器常驻 JVM，避免每次启动 javac 进程和 JIT 预热</p>
+ * <p>javac 不响应中断，超时后设置取消标记，由 {@link TaskListener} 和文件管理器在下一个检查点抛出异常结束编译；
+ * 单个阶段内没有检查点，结束前仍占用线程，因此线程数量有上限(compile-threads)</p>
+ * <p>没有空闲线程或源码超过 {@link #MAX_SOURCE_LENGTH} 时由调用方改用 javac 进程编译，进程超时后可以强制结束</p>
+ */
+@Slf4j
+@Component
+public class InProcessJavac {
+
+    private static final String CLASS_NAME = "Solution";
+
+    // 较大的源码使用 javac 进程编译，避免长时间占用编译线程
+    private static final int MAX_SOURCE_LENGTH = 64 * 1024;
+
+    // 与 javac 命令保持一致，并禁用注解处理器
+    private static final List<String> OPTIONS = List.of(
+            "-encoding", "UTF-8", "-source", "1.8", "-target", "1.8", "-proc:none", "-Xlint:-options"
+    );
+
+    private final JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+
+    private final boolean enabled;
+
+    // 不排队，没有空闲线程时拒绝
+    private final ThreadPoolExecutor executor;
+
+    // 每个编译线程复用一个文件管理器，保留已打开的 JDK 类库
+    private final ThreadLocal<StandardJavaFileManager> fileManagers = new ThreadLocal<>();
+
+    /**
+     * 编译失败，信息格式与 javac 的错误输出一致
+     */
+    public static class CompileError extends Exception {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        CompileError(String msg) {
+            super(msg);
+        }
+    }
+
+    public InProcessJavac(AppConfig appConfig) {
+        this.enabled = appConfig.isInProcessJavac() && javac != null;
+        var threads = appConfig.getCompileThreads();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            var thread = new Thread(r, "JAVAC");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (appConfig.isInProcessJavac() && javac == null) {
+            log.warn("当前运行环境没有 JDK 编译器，使用 javac 进程编译");
+        }
+
+        if (enabled) {
+            // 预热编译器
+            new Thread(() -> {
+                try {
+                    compile("public class Solution { public static void main(String[] args) {} }", 60);
+                } catch (Exception e) {
+                    log.warn("预热 Java 编译器失败: {}", e.getMessage());
+                }
+            }, "JAVAC-WARMUP").start();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 编译并将 class 文件写入代码目录
+     *
+     * @param timeout 超时时间(秒)
+     * @return 没有空闲的编译线程或源码过大时为 false，未编译
+     */
+    public boolean compile(String source, File solutionDir, long timeout)
+            throws CompileError, InterruptedException, IOException {
+        if (source.length() > MAX_SOURCE_LENGTH) {
+            return false;
+        }
+
+        var classes = compile(source, timeout);
+
+        if (classes == null) {
+            return false;
+        }
+
+        for (var entry : classes.entrySet()) {
+            var file = new File(solutionDir, entry.getKey().replace('.', '/') + ".class");
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.write(file.toPath(), entry.getValue().toByteArray());
+        }
+
+        return true;
+    }
+
+    /**
+     * 编译源码
+     *
+     * @return 类名 -> class 文件内容，没有空闲的编译线程时为 null
+     */
+    private Map<String, ByteArrayOutputStream> compile(String source, long timeout)
+            throws CompileError, InterruptedException {
+        var classes = new ConcurrentHashMap<String, ByteArrayOutputStream>();
+        var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        var cancelled = new AtomicBoolean();
+        Future<Boolean> future;
+
+        try {
+            future = executor.submit(() -> {
+                var fileManager = new MemoryFileManager(fileManager(), classes, cancelled);
+                var units = List.of(new SourceFile(source));
+                var task = (JavacTask) javac.getTask(null, fileManager, diagnostics, OPTIONS, null, units);
+                task.addTaskListener(new CancelListener(cancelled));
+
+                try {
+                    return task.call();
+                } catch (RuntimeException e) {
+                    if (cancelled.get()) {
+                        // 中途结束的编译器可能留下不一致的状态，不再复用文件管理器
+                        fileManagers.remove();
+                    }
+
+                    throw e;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("没有空闲的 Java 编译线程");
+            return null;
+        }
+
+        try {
+            if (Boolean.TRUE.equals(future.get(timeout, TimeUnit.SECONDS))) {
+                return classes;
+            }
+
+            throw new CompileError(format(diagnostics.getDiagnostics()));
+        } catch (TimeoutException e) {
+            cancelled.set(true);
+            log.warn("Java 编译超时，已取消");
+            throw new InterruptedException("编译超时");
+        } catch (ExecutionException e) {
+            throw new CompileError(e.getCause().toString());
+        }
+    }
+
+    private StandardJavaFileManager fileManager() throws IOException {
+        var fileManager = fileManagers.get();
+
+        if (fileManager == null) {
+            fileManager = javac.getStandardFileManager(null, Locale.ROOT, StandardCharsets.UTF_8);
+            // 不使用判题服务的 classpath
+            fileManager.setLocation(StandardLocation.CLASS_PATH, List.of());
+            fileManagers.set(fileManager);
+        }
+
+        return fileManager;
+    }
+
+    /**
+     * 按照 javac 的格式输出错误信息
+     */
+    private static String format(List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+        var sb = new StringBuilder();
+        var errors = 0;
+
+        for (var d : diagnostics) {
+            if (d.getKind() != Diagnostic.Kind.ERROR) {
+                continue;
+            }
+
+            errors++;
+            var name = d.getSource() == null ? "" : CLASS_NAME + ".java:" + d.getLineNumber() + ": ";
+            sb.append(name).append("error: ").append(d.getMessage(Locale.ROOT)).append('\n');
+
+            if (d.getSource() != null && d.getLineNumber() > 0) {
+                try {
+                    var line = d.getSource().getCharContent(true).toString()
+                            .lines()
+                            .skip(d.getLineNumber() - 1)
+                            .findFirst()
+                            .orElse("");
+                    sb.append(line).append('\n')
+                            .append(" ".repeat((int) Math.max(0, d.getColumnNumber() - 1))).append("^\n");
+                } catch (IOException ignored) {
+                    // 内存中的源码，不会发生
+                }
+            }
+        }
+
+        sb.append(errors).append(errors == 1 ? " error" : " errors").append('\n');
+        return sb.toString();
+    }
+
+    /**
+     * 内存中的源文件
+     */
+    private static class SourceFile extends SimpleJavaFileObject {
+        private final String source;
+
+        SourceFile(String source) {
+            super(URI.create("string:///" + CLASS_NAME + ".java"), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+    /**
+     * 已取消时抛出异常，结束编译
+     */
+    private static void checkCancelled(AtomicBoolean cancelled) {
+        if (cancelled.get()) {
+            throw new CancellationException("编译已取消");
+        }
+    }
+
+    /**
+     * 在每个编译阶段开始和结束时检查取消标记
+     */
+    private record CancelListener(AtomicBoolean cancelled) implements TaskListener {
+
+        @Override
+        public void started(TaskEvent e) {
+            checkCancelled(cancelled);
+        }
+
+        @Override
+        public void finished(TaskEvent e) {
+            checkCancelled(cancelled);
+        }
+    }
+
+    /**
+     * 将 class 文件输出到内存
+     * <p>查找类时检查取消标记，类型检查阶段也能及时结束</p>
+     */
+    private static class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        private final Map<String, ByteArrayOutputStream> classes;
+
+        private final AtomicBoolean cancelled;
+
+        MemoryFileManager(StandardJavaFileManager fileManager, Map<String, ByteArrayOutputStream> classes,
+                          AtomicBoolean cancelled) {
+            super(fileManager);
+            this.classes = classes;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        public Iterable<JavaFileObject> list(Location location, String packageName, Set<JavaFileObject.Kind> kinds,
+                                             boolean recurse) throws IOException {
+            checkCancelled(cancelled);
+            return super.list(location, packageName, kinds, recurse);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className,
+                                                   JavaFileObject.Kind kind, FileObject sibling) {
+            checkCancelled(cancelled);
+            return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    var out = new ByteArrayOutputStream();
+                    classes.put(className, out);
+                    return out;
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+            // 底层文件管理器由线程复用，不关闭
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package cloud.oj.judge.component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 判题流水线的指标
+ * <p>直方图由 management.metrics.distribution.percentiles-histogram.judge 开启</p>
+ */
+@Component
+public class JudgeMetrics {
+
+    private static final String[] LANGUAGES = {"c", "cpp", "java", "python", "bash", "csharp", "javascript",
+            "kotlin", "go"};
+
+    // 与判题程序一致，1 -> 9: AC -> OLE
+    private static final String[] RESULTS = {"", "AC", "TLE", "MLE", "PA", "WA", "CE", "RE", "IE", "OLE"};
+
+    private final MeterRegistry registry;
+
+    public JudgeMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * 排队时间(提交到从判题队列取出)
+     */
+    public void queueWait(long submitTime, int priority) {
+        Timer.builder("judge.queue.wait")
+                .description("提交到从判题队列取出的时间")
+                .tag("priority", String.valueOf(priority))
+                .register(registry)
+                .record(Duration.ofMillis(Math.max(0, System.currentTimeMillis() - submitTime)));
+    }
+
+    /**
+     * 编译耗时(包括命中编译缓存)
+     */
+    public void compile(Integer language, long millis, boolean success) {
+        Timer.builder("judge.compile")
+                .description("编译耗时")
+                .tag("language", language(language))
+                .tag("success", String.valueOf(success))
+                .register(registry)
+                .record(millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 运行耗时(租用 CPU 到判题程序全部退出)
+     * <p>不按题目区分，否则每道题目一个直方图</p>
+     */
+    public void run(long nanos) {
+        Timer.builder("judge.run")
+                .description("运行耗时")
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 数据库写入耗时
+     *
+     * @param op result: 写入结果，ranking: 更新排名
+     */
+    public void write(String op, Runnable runnable) {
+        Timer.builder("judge.db.write")
+                .description("数据库写入耗时")
+                .tag("op", op)
+                .register(registry)
+                .record(runnable);
+    }
+
+    /**
+     * 判题结果计数
+     */
+    public void verdict(Integer language, Integer result) {
+        var name = result != null && result > 0 && result < RESULTS.length ? RESULTS[result] : "UNKNOWN";
+        Counter.builder("judge.verdict")
+                .description("判题结果数量")
+                .tag("language", language(language))
+                .tag("result", name)
+                .register(registry)
+                .increment();
+    }
+
+    private static String language(Integer language) {
+        return language != null && language >= 0 && language < LANGUAGES.length ? LANGUAGES[language] : "unknown";
+    }
+}
@@ -0,0 +1,228 @@
+package cloud.oj.judge.component;
+
+import cloud.oj.judge.config.AppConfig;
+import cloud.oj.judge.entity.Solution;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 判题调度，决定预取的消息中哪一条先编译
+ * <p>优先级高的先执行；同一优先级中按用户公平排队，已消耗判题时间最少的用户先执行，
+ * 同一用户的任务中预计耗时短的先执行</p>
+ * <p>每个用户同时判题的数量有上限，达到上限的用户的任务暂不执行</p>
+ * <p>等待超过 maxWait 的任务单独按到达顺序最先执行，避免饿死；其余任务按上述规则排序</p>
+ * <p>预计耗时 = 时间限制 × 测试点数量 + 该语言的平均编译耗时</p>
+ */
+@Component
+public class JudgeScheduler {
+
+    // 编译耗时 EWMA 的权重
+    private static final double ALPHA = 0.2;
+
+    // 计入用户消耗的单个任务最大耗时(毫秒)，无法估计的任务按此计算
+    private static final long MAX_CHARGE = 60_000;
+
+    /**
+     * 待编译的任务
+     *
+     * @param cost    预计耗时(毫秒)
+     * @param arrival 到达时间(纳秒)
+     */
+    public record Job(Solution solution, Channel channel, long deliveryTag, long cost, long arrival) {
+    }
+
+    private final ProblemCache problemCache;
+
+    private final long maxWait;
+
+    private final int userLimit;
+
+    private final List<Job> pending = new ArrayList<>();
+
+    // uid -> 已消耗的判题时间(虚拟时间)，只保留有任务的用户
+    private final HashMap<Integer, Long> served = new HashMap<>();
+
+    // uid -> 正在判题的数量
+    private final HashMap<Integer, Integer> running = new HashMap<>();
+
+    // 因用户达到上限而没有取到任务的次数
+    private int deferred = 0;
+
+    // language -> 平均编译耗时(毫秒)
+    private final ConcurrentHashMap<Integer, Double> compileTime = new ConcurrentHashMap<>();
+
+    private final Timer waitTimer;
+
+    public JudgeScheduler(AppConfig appConfig, ProblemCache problemCache, MeterRegistry registry) {
+        this.problemCache = problemCache;
+        this.maxWait = Duration.ofSeconds(appConfig.getJudgeMaxWait()).toNanos();
+        this.userLimit = appConfig.getJudgeUserLimit();
+        this.waitTimer = Timer.builder("judge.schedule.wait")
+                .description("任务在本地等待编译的时间")
+                .register(registry);
+        Gauge.builder("judge.schedule.pending", this, JudgeScheduler::pendingCount)
+                .description("本地等待编译的任务数量")
+                .register(registry);
+        Gauge.builder("judge.schedule.users", this, JudgeScheduler::userCount)
+                .description("有任务的用户数量")
+                .register(registry);
+        Gauge.builder("judge.schedule.deferred", this, s -> s.deferred)
+                .description("因用户达到上限而推迟的任务数量")
+                .register(registry);
+    }
+
+    public Job add(Solution solution, Channel channel, long deliveryTag) {
+        var job = new Job(solution, channel, deliveryTag, estimate(solution), System.nanoTime());
+
+        synchronized (this) {
+            if (!served.containsKey(solution.getUid())) {
+                // 新加入的用户从当前最小的虚拟时间开始，不能累积之前空闲的额度
+                var min = served.values().stream().mapToLong(Long::longValue).min().orElse(0);
+                served.put(solution.getUid(), min);
+            }
+
+            pending.add(job);
+        }
+
+        return job;
+    }
+
+    public synchronized void remove(Job job) {
+        pending.remove(job);
+        cleanup(job.solution().getUid());
+    }
+
+    /**
+     * 取出下一个任务，每次 {@link #add} 对应一次调用
+     *
+     * @return 没有可执行的任务(用户都达到上限)时为 null，由 {@link #finish} 补上
+     */
+    public synchronized Job poll() {
+        var now = System.nanoTime();
+        Job aged = null;
+        Job best = null;
+
+        for (var job : pending) {
+            if (running.getOrDefault(job.solution().getUid(), 0) >= userLimit) {
+                continue;
+            }
+
+            if (now - job.arrival() > maxWait) {
+                if (aged == null || job.arrival() < aged.arrival()) {
+                    aged = job;
+                }
+            } else if (best == null || before(job, best)) {
+                best = job;
+            }
+        }
+
+        if (aged != null) {
+            best = aged;
+        }
+
+        if (best == null) {
+            deferred++;
+            return null;
+        }
+
+        var uid = best.solution().getUid();
+        pending.remove(best);
+        running.merge(uid, 1, Integer::sum);
+        served.merge(uid, Math.min(best.cost(), MAX_CHARGE), Long::sum);
+        waitTimer.record(now - best.arrival(), TimeUnit.NANOSECONDS);
+        return best;
+    }
+
+    /**
+     * 任务结束(消息已确认或拒绝)
+     *
+     * @return 是否需要再调用一次 {@link #poll}
+     */
+    public synchronized boolean finish(Integer uid) {
+        running.computeIfPresent(uid, (k, v) -> v > 1 ? v - 1 : null);
+        cleanup(uid);
+
+        if (deferred > 0) {
+            deferred--;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * 记录一次编译耗时(包括命中编译缓存)
+     */
+    public void recordCompile(Integer language, long millis) {
+        if (language == null) {
+            return;
+        }
+
+        compileTime.merge(language, (double) millis, (old, t) -> old + ALPHA * (t - old));
+    }
+
+    /**
+     * 依次比较优先级、用户已消耗的时间、预计耗时和到达时间
+     */
+    private boolean before(Job a, Job b) {
+        var pa = a.solution().getPriority();
+        var pb = b.solution().getPriority();
+
+        if (pa != pb) {
+            return pa > pb;
+        }
+
+        // 同一用户的值相同
+        var sa = served.get(a.solution().getUid());
+        var sb = served.get(b.solution().getUid());
+
+        if (!sa.equals(sb)) {
+            return sa < sb;
+        }
+
+        return a.cost() < b.cost() || (a.cost() == b.cost() && a.arrival() < b.arrival());
+    }
+
+    /**
+     * 用户没有等待和正在执行的任务时移除
+     */
+    private void cleanup(Integer uid) {
+        if (!running.containsKey(uid) && pending.stream().noneMatch(job -> job.solution().getUid().equals(uid))) {
+            served.remove(uid);
+        }
+    }
+
+    private synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    private synchronized int userCount() {
+        return served.size();
+    }
+
+    private long estimate(Solution solution) {
+        try {
+            var compile = compileTime.getOrDefault(solution.getLanguage(), 0D).longValue();
+            var problem = problemCache.get(solution.getProblemId());
+
+            if (problem == null) {
+                return compile;
+            }
+
+            return (long) problem.getTimeout() * problemCache.getTestCount(solution.getProblemId()) + compile;
+        } catch (Exception e) {
+            // 无法估计时排在同一优先级的最后
+            return Long.MAX_VALUE;
+        }
+    }
+}
@@ -2,24 +2,24 @@ package cloud.oj.judge.component;
 
 import cloud.oj.judge.config.AppConfig;
 import cloud.oj.judge.constant.State;
-import cloud.oj.judge.dao.ProblemDao;
-import cloud.oj.judge.dao.RankingDao;
 import cloud.oj.judge.dao.SolutionDao;
 import cloud.oj.judge.entity.Problem;
 import cloud.oj.judge.entity.Result;
 import cloud.oj.judge.entity.Solution;
 import cloud.oj.judge.error.UnsupportedLanguageError;
+import cloud.oj.judge.service.RankingService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Isolation;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 
 import static cloud.oj.judge.constant.Language.*;
 import static cloud.oj.judge.entity.Result.*;
@@ -31,48 +31,82 @@ public class Judgement {
 
     private final AppConfig appConfig;
 
-    private final ProblemDao problemDao;
+    private final ProblemCache problemCache;
 
     private final SolutionDao solutionDao;
 
-    private final RankingDao rankingDao;
+    private final RankingService rankingService;
 
     private final Compiler compiler;
 
-    private final HashMap<String, Integer> cpuMap;
+    private final CpuAllocator cpuAllocator;
 
     private final ObjectMapper objectMapper;
 
-    private final ProcessBuilder processBuilder = new ProcessBuilder();
+    private final ProcessLauncher processLauncher;
+
+    private final SandboxPool sandboxPool;
+
+    private final StateBuffer stateBuffer;
+
+    private final SolutionEvents solutionEvents;
+
+    private final JudgeMetrics metrics;
+
+    // 保留的判题程序输出(字节)
+    private static final int OUTPUT_LIMIT = 64 * 1024;
 
     /**
-     * 判题入口
-     * <p>隔离级别：读提交</p>
+     * 编译阶段
+     * <p>不使用事务，编译期间不占用数据库连接</p>
+     * <p>编译失败时写入结果</p>
      *
-     * @param solution {@link Solution}
+     * @param solution  {@link Solution}
+     * @param workspace 工作区目录
+     * @return 是否编译成功
      */
-    @Transactional(isolation = Isolation.READ_COMMITTED, rollbackFor = Exception.class)
-    public void judge(Solution solution) {
-        var compile = compiler.compile(solution);
+    public boolean compile(Solution solution, File workspace) {
+        var timeline = solution.getTimeline();
+        timeline.setCompileStart(System.currentTimeMillis());
+        var compile = compiler.compile(solution, workspace);
+        timeline.setCompileEnd(System.currentTimeMillis());
 
         if (compile.getState() == 0) {
-            // 编译成功
-            var problem = problemDao.getById(solution.getProblemId());
-            // 更新为正在运行状态
-            solutionDao.updateState(solution.getSolutionId(), State.RUNNING);
-            // 运行
-            var result = execute(solution, problem);
-            saveResult(solution, result, problem);
-        } else {
-            // 编译失败
-            solution.endWithError(CE, compile.getInfo());
-            solutionDao.updateWithResult(solution);
+            return true;
         }
+
+        // 编译失败
+        solution.endWithError(CE, compile.getInfo());
+        writeResult(solution);
+        return false;
+    }
+
+    /**
+     * 运行阶段，在判题线程中执行
+     * <p>不使用事务，运行期间不占用数据库连接</p>
+     * <p>状态更新、结果写入、排名更新各自为独立的短事务</p>
+     *
+     * @param solution  {@link Solution}
+     * @param workspace 工作区目录
+     */
+    public void run(Solution solution, File workspace) {
+        var problem = problemCache.get(solution.getProblemId());
+        // 更新为正在运行状态
+        stateBuffer.update(solution.getSolutionId(), State.RUNNING);
+        solutionEvents.publish(solution, State.RUNNING);
+        // 运行
+        var timeline = solution.getTimeline();
+        timeline.setRunStart(System.currentTimeMillis());
+        var start = System.nanoTime();
+        var result = execute(solution, problem, workspace);
+        metrics.run(System.nanoTime() - start);
+        timeline.setRunEnd(System.currentTimeMillis());
+        saveResult(solution, result, problem);
     }
 
     /**
      * 保存判题结果
-     * <p>计算分数并更新排名</p>
+     * <p>计算分数并更新排名，结果已写入后排名更新失败只记录日志，不再改为内部错误</p>
      *
      * @param result {@link Result}
      */
@@ -80,7 +114,7 @@ public class Judgement {
         // 内部错误
         if (result.getResult().equals(IE)) {
             solution.endWithError(result.getResult(), result.getError());
-            solutionDao.updateWithResult(solution);
+            writeResult(solution);
             return;
         }
 
@@ -90,19 +124,12 @@ public class Judgement {
             solution.setErrorInfo(result.getError());
         }
 
-        var uid = solution.getUid();
-        var problemId = solution.getProblemId();
-        var contestId = solution.getContestId();
-
         var passRate = result.getPassRate();
 
         if (Double.isNaN(passRate)) {
             passRate = 0d;
         }
 
-        // 查询历史提交中的最高分
-        var maxScore = solutionDao.getMaxScoreOfUser(uid, problemId, contestId);
-
         solution.setTotal(result.getTotal());
         solution.setPassed(result.getPassed());
         solution.setPassRate(passRate);
@@ -112,81 +139,286 @@ public class Judgement {
         solution.setResult(result.getResult());
         solution.setState(State.JUDGED);
 
-        solutionDao.updateWithResult(solution);
+        writeResult(solution);
 
         // 更新排名
-        // 本次得分不为 0 且历史最高分小于本次得分时才更新排名
-        if (passRate > 0 && (maxScore == null || maxScore < solution.getScore())) {
-            if (contestId == null) {
-                rankingDao.update(uid, solution.getSubmitTime());
-            } else {
-                rankingDao.updateForContest(contestId, uid, solution.getSubmitTime());
-            }
-        } else {
-            // 仅更新提交次数
-            if (contestId == null) {
-                rankingDao.incCommitted(uid, solution.getSubmitTime());
-            } else {
-                rankingDao.incCommittedForContest(uid, contestId, solution.getSubmitTime());
-            }
+        try {
+            metrics.write("ranking", () -> rankingService.update(solution));
+        } catch (Exception e) {
+            log.error("更新排名失败({}): {}", solution.getSolutionId(), ExceptionUtils.getRootCause(e).getMessage());
         }
     }
 
+    /**
+     * 写入最终结果，未写入的中间状态不再需要
+     * <p>结果写入后保存各阶段的时间</p>
+     */
+    public void writeResult(Solution solution) {
+        stateBuffer.discard(solution.getSolutionId());
+        metrics.write("result", () -> solutionDao.updateWithResult(solution));
+        metrics.verdict(solution.getLanguage(), solution.getResult());
+        solutionEvents.publish(solution, State.JUDGED);
+
+        var timeline = solution.getTimeline();
+        timeline.setSolutionId(solution.getSolutionId());
+        timeline.setPersistAt(System.currentTimeMillis());
+        stateBuffer.save(timeline);
+    }
+
     /**
      * 运行用户程序
+     * <p>租用一个 CPU，在对应的沙箱中运行，结束后用户输出移回工作区</p>
+     * <p>测试点较多且有空闲 CPU 时分片运行，每个 CPU 运行一部分测试点，结果按 calc_results 的规则合并</p>
      *
      * @return 运行结果 {@link Result}
      */
-    private Result execute(Solution solution, Problem problem) {
-        Process process = null;
+    private Result execute(Solution solution, Problem problem, File workspace) {
         Result result;
+        Integer cpu = null;
+        SandboxPool.Sandbox sandbox = null;
+        var extra = new ArrayList<SandboxPool.Sandbox>();
+        var executions = new ArrayList<Execution>();
 
         try {
             check(solution.getLanguage());
+            cpu = cpuAllocator.lease();
+            sandbox = sandboxPool.lease(cpu, workspace);
+            var tests = problemCache.getTestCount(solution.getProblemId());
+            leaseShards(sandbox, tests, extra);
 
-            var bin = "judge";
-            var lang = "--lang=" + solution.getLanguage();
-            var time = "--time=" + problem.getTimeout();
-            var ram = "--ram=" + problem.getMemoryLimit();
-            var output = "--output=" + problem.getOutputLimit();
-            var cpu = "--cpu=" + cpuMap.get(Thread.currentThread().getName());
-            var workdir = "--workdir=" + appConfig.getCodeDir() + solution.getSolutionId();
-            var data = "--data=" + appConfig.getFileDir() + "data/" + solution.getProblemId();
-            var cmd = switch (solution.getLanguage()) {
-                case C, CPP, GO -> "--cmd=./Solution";
-                case JAVA -> "--cmd=java@-Xmx256m@Solution";
-                case KOTLIN -> "--cmd=./Solution.kexe";
-                case JAVA_SCRIPT -> "--cmd=node@Solution.js";
-                case PYTHON -> "--cmd=python3@Solution.py";
-                case BASH -> "--cmd=sh@Solution.sh";
-                case C_SHARP -> "--cmd=mono@Solution.exe";
-                default -> "";
-            };
-
-            process = processBuilder.command(bin, cmd, lang, time, ram, cpu, output, workdir, data).start();
-            process.waitFor();
-
-            if (process.exitValue() != 0) {
-                // 非零退出
-                log.error(IOUtils.toString(process.getErrorStream(), StandardCharsets.UTF_8));
-                result = withError(IE, "JUDGE NON-ZERO EXIT");
+            if (extra.isEmpty()) {
+                var execution = launch(args(solution, problem, sandbox, null));
+                executions.add(execution);
+                result = execution.await();
             } else {
-                result = objectMapper.readValue(process.getInputStream(), Result.class);
+                var shards = extra.size() + 1;
+                executions.add(launch(args(solution, problem, sandbox, "0/" + shards)));
+
+                for (int k = 1; k < shards; k++) {
+                    executions.add(launch(args(solution, problem, extra.get(k - 1), k + "/" + shards)));
+                }
+
+                var results = new ArrayList<Result>(shards);
+
+                for (var execution : executions) {
+                    results.add(execution.await());
+                }
+
+                result = merge(results, tests);
             }
         } catch (UnsupportedLanguageError e) {
             result = withError(IE, e.getMessage());
         } catch (InterruptedException e) {
             log.error(e.getMessage());
+            Thread.currentThread().interrupt();
             result = withError(IE, "JUDGE THREAD ERROR");
         } catch (IOException e) {
             log.error(e.getMessage());
             result = withError(IE, "JUDGE THREAD IO ERROR");
         } finally {
-            if (process != null) {
-                process.destroy();
+            // 出错时结束其他分片
+            executions.forEach(Execution::kill);
+            extra.forEach(s -> {
+                sandboxPool.release(s, workspace);
+                cpuAllocator.release(s.cpu());
+            });
+
+            if (sandbox != null) {
+                sandboxPool.release(sandbox, workspace);
+            }
+
+            if (cpu != null) {
+                cpuAllocator.release(cpu);
             }
         }
 
         return result;
     }
+
+    /**
+     * 租用其他空闲的 CPU 和沙箱，每个分片至少 shardMinTests 个测试点
+     */
+    private void leaseShards(SandboxPool.Sandbox sandbox, int tests, List<SandboxPool.Sandbox> extra) {
+        var minTests = appConfig.getShardMinTests();
+
+        if (minTests == 0) {
+            return;
+        }
+
+        var max = tests / minTests - 1;
+
+        while (extra.size() < max) {
+            var cpu = cpuAllocator.tryLease();
+
+            if (cpu == null) {
+                break;
+            }
+
+            var s = sandboxPool.tryLease(cpu, sandbox);
+
+            if (s == null) {
+                cpuAllocator.release(cpu);
+                break;
+            }
+
+            extra.add(s);
+        }
+    }
+
+    private List<String> args(Solution solution, Problem problem, SandboxPool.Sandbox sandbox, String shard) {
+        var cmd = switch (solution.getLanguage()) {
+            case C, CPP, GO -> "--cmd=./Solution";
+            case JAVA -> "--cmd=java@-Xmx256m@Solution";
+            case KOTLIN -> "--cmd=./Solution.kexe";
+            case JAVA_SCRIPT -> "--cmd=node@Solution.js";
+            case PYTHON -> "--cmd=python3@Solution.py";
+            case BASH -> "--cmd=sh@Solution.sh";
+            case C_SHARP -> "--cmd=mono@Solution.exe";
+            default -> "";
+        };
+
+        var args = new ArrayList<>(List.of(
+                "judge",
+                cmd,
+                "--lang=" + solution.getLanguage(),
+                "--time=" + problem.getTimeout(),
+                "--ram=" + problem.getMemoryLimit(),
+                "--cpu=" + sandbox.cpu(),
+                "--output=" + problem.getOutputLimit(),
+                "--workdir=" + sandbox.dir().getPath(),
+                "--data=" + appConfig.getFileDir() + "data/" + solution.getProblemId()
+        ));
+
+        if (sandbox.mounted()) {
+            args.add("--mounted");
+        }
+
+        if (shard != null) {
+            args.add("--shard=" + shard);
+        }
+
+        return args;
+    }
+
+    /**
+     * 启动判题程序
+     */
+    private Execution launch(List<String> args) throws IOException {
+        var command = new ProcessLauncher.Command(
+                "judge",
+                args,
+                null,
+                Duration.ofSeconds(appConfig.getRunTimeout()),
+                OUTPUT_LIMIT
+        );
+        return new Execution(processLauncher.start(command));
+    }
+
+    /**
+     * 合并分片结果，与判题程序的 Utils::calc_results 一致
+     * <p>按测试点下标顺序，遇到第一个 RE/IE 为止(顺序运行时在此停止)</p>
+     *
+     * @param total 题目的测试点数量，不使用某个分片返回的数量
+     */
+    static Result merge(List<Result> results, int total) {
+        var tests = new ArrayList<long[]>();
+
+        for (var r : results) {
+            if (r.getResult().equals(IE) && r.getTests() == null) {
+                // 分片整体失败
+                return r;
+            }
+
+            if (r.getTests() != null) {
+                tests.addAll(r.getTests());
+            }
+        }
+
+        tests.sort(Comparator.comparingLong(t -> t[0]));
+
+        // 1 -> 9: AC -> OLE
+        var count = new int[10];
+        long time = 0, memory = 0;
+        String error = "";
+
+        for (var t : tests) {
+            var status = (int) t[1];
+            count[status]++;
+            time = Math.max(time, t[2]);
+            memory = Math.max(memory, t[3]);
+
+            if (status == RE || status == IE) {
+                // 第一个 RE/IE 所在分片的错误信息
+                var index = t[0];
+                error = results.stream()
+                        .filter(r -> r.getTests() != null && r.getTests().stream().anyMatch(x -> x[0] == index))
+                        .findFirst()
+                        .map(Result::getError)
+                        .orElse("");
+
+                if (status == IE) {
+                    return withError(IE, error);
+                }
+
+                break;
+            }
+        }
+
+        var passRate = 0D;
+        int status;
+
+        if (count[AC] == 0) {
+            status = WA;
+        } else if (count[AC] < total) {
+            status = PA;
+            passRate = (double) count[AC] / total;
+        } else {
+            passRate = 1;
+            status = AC;
+        }
+
+        if (count[RE] > 0) {
+            status = RE;
+        } else if (count[OLE] > 0) {
+            status = OLE;
+        } else if (count[MLE] > 0) {
+            status = MLE;
+        } else if (count[TLE] > 0) {
+            status = TLE;
+        }
+
+        return new Result(status, total, count[AC], passRate, time, memory, error, null);
+    }
+
+    /**
+     * 运行中的判题程序
+     */
+    private class Execution {
+        private final ProcessLauncher.Execution execution;
+
+        private Execution(ProcessLauncher.Execution execution) {
+            this.execution = execution;
+        }
+
+        /**
+         * 等待结束并解析结果
+         */
+        private Result await() throws InterruptedException, IOException {
+            var process = execution.await();
+
+            if (process.timedOut()) {
+                return withError(IE, "JUDGE TIMEOUT");
+            } else if (process.exitCode() != 0) {
+                // 非零退出
+                log.error(process.stderr());
+                return withError(IE, "JUDGE NON-ZERO EXIT");
+            } else {
+                return objectMapper.readValue(process.stdout(), Result.class);
+            }
+        }
+
+        private void kill() {
+            execution.killTree();
+        }
+    }
 }
@@ -1,47 +1,194 @@
 package cloud.oj.judge.component;
 
+import cloud.oj.judge.component.WorkspacePool.Workspace;
 import cloud.oj.judge.dao.SettingsDao;
-import cloud.oj.judge.dao.SolutionDao;
 import cloud.oj.judge.entity.Solution;
-import cloud.oj.judge.utils.FileCleaner;
-import lombok.RequiredArgsConstructor;
+import com.rabbitmq.client.Channel;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.exception.ExceptionUtils;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
 import static cloud.oj.judge.entity.Result.IE;
 
+/**
+ * 判题流水线
+ * <p>编译线程池 -> 有界队列 -> 运行线程池(绑定 CPU)</p>
+ */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class JudgementEntry {
 
     private final SettingsDao settingsDao;
 
-    private final SolutionDao solutionDao;
-
     private final Judgement judgement;
 
-    private final FileCleaner fileCleaner;
+    private final WorkspacePool workspacePool;
+
+    private final JudgeScheduler scheduler;
+
+    private final JudgeMetrics metrics;
+
+    private final Executor compileExecutor;
+
+    private final Executor judgeExecutor;
+
+    public JudgementEntry(SettingsDao settingsDao,
+                          Judgement judgement,
+                          WorkspacePool workspacePool,
+                          JudgeScheduler scheduler,
+                          JudgeMetrics metrics,
+                          @Qualifier("compileExecutor") Executor compileExecutor,
+                          @Qualifier("judgeExecutor") Executor judgeExecutor) {
+        this.settingsDao = settingsDao;
+        this.judgement = judgement;
+        this.workspacePool = workspacePool;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+        this.compileExecutor = compileExecutor;
+        this.judgeExecutor = judgeExecutor;
+    }
+
+    /**
+     * 判题入口，任务交给 {@link JudgeScheduler}，空闲的编译线程从中取出最优先的任务
+     * <p>结果写入数据库后确认消息，写入失败则拒绝并重新入队</p>
+     *
+     * @param channel     消息所在的 {@link Channel}
+     * @param deliveryTag 消息的 deliveryTag
+     */
+    public void judge(Solution solution, Channel channel, long deliveryTag) {
+        solution.getTimeline().setDequeueAt(System.currentTimeMillis());
+
+        if (solution.getSubmitTime() != null) {
+            metrics.queueWait(solution.getSubmitTime(), solution.getPriority());
+        }
+
+        var job = scheduler.add(solution, channel, deliveryTag);
+
+        try {
+            compileExecutor.execute(this::compileNext);
+        } catch (TaskRejectedException e) {
+            // 由调用方拒绝消息
+            scheduler.remove(job);
+            throw e;
+        }
+    }
+
+    private void compileNext() {
+        var job = scheduler.poll();
+
+        if (job != null) {
+            compile(job.solution(), job.channel(), job.deliveryTag());
+        }
+    }
+
+    /**
+     * 编译阶段，租用工作区，成功后交给运行线程池
+     */
+    private void compile(Solution solution, Channel channel, long deliveryTag) {
+        Workspace workspace;
+
+        try {
+            workspace = workspacePool.lease();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ack(solution, channel, deliveryTag, false);
+            return;
+        }
+
+        try {
+            var start = System.currentTimeMillis();
+            var compiled = judgement.compile(solution, workspace.dir());
+            var elapsed = System.currentTimeMillis() - start;
+            scheduler.recordCompile(solution.getLanguage(), elapsed);
+            metrics.compile(solution.getLanguage(), elapsed, compiled);
+
+            if (compiled) {
+                // 运行队列已满时阻塞当前编译线程
+                judgeExecutor.execute(() -> run(solution, workspace, channel, deliveryTag));
+                return;
+            }
+
+            finish(solution, workspace, channel, deliveryTag, true);
+        } catch (TaskRejectedException e) {
+            // 运行线程池已关闭，重新入队
+            workspacePool.release(workspace, solution.getSolutionId(), false);
+            ack(solution, channel, deliveryTag, false);
+        } catch (Exception e) {
+            finish(solution, workspace, channel, deliveryTag, fail(solution, e));
+        }
+    }
+
+    /**
+     * 运行阶段
+     */
+    private void run(Solution solution, Workspace workspace, Channel channel, long deliveryTag) {
+        var persisted = true;
+
+        try {
+            judgement.run(solution, workspace.dir());
+        } catch (Exception e) {
+            persisted = fail(solution, e);
+        }
+
+        finish(solution, workspace, channel, deliveryTag, persisted);
+    }
+
+    /**
+     * 判题发生异常，将结果设置为内部错误
+     *
+     * @return 是否写入成功
+     */
+    private boolean fail(Solution solution, Exception e) {
+        var msg = ExceptionUtils.getRootCause(e).getMessage();
+        log.error(msg);
+        solution.endWithError(IE, msg);
+
+        try {
+            judgement.writeResult(solution);
+            return true;
+        } catch (Exception ex) {
+            log.error("写入结果失败({}): {}", solution.getSolutionId(), ExceptionUtils.getRootCause(ex).getMessage());
+            return false;
+        }
+    }
 
     /**
-     * 判题入口
+     * 归还工作区并确认消息，不自动删除代码时保留一份到临时代码目录
      */
-    @Async("judgeExecutor")
-    public void judge(Solution solution) {
+    private void finish(Solution solution, Workspace workspace, Channel channel, long deliveryTag,
+                        boolean persisted) {
+        var keep = false;
+
         try {
-            judgement.judge(solution);
+            keep = persisted && !settingsDao.isAutoDelSolutions();
         } catch (Exception e) {
-            var msg = ExceptionUtils.getRootCause(e).getMessage();
-            log.error(msg);
-            // 判题发生异常，将结果设置为内部错误
-            solution.endWithError(IE, msg);
-            solutionDao.updateWithResult(solution);
-        } finally {
-            if (settingsDao.isAutoDelSolutions()) {
-                fileCleaner.deleteTempFile(solution.getSolutionId());
+            log.warn("读取设置失败: {}", ExceptionUtils.getRootCause(e).getMessage());
+        }
+
+        workspacePool.release(workspace, solution.getSolutionId(), keep);
+        ack(solution, channel, deliveryTag, persisted);
+    }
+
+    private void ack(Solution solution, Channel channel, long deliveryTag, boolean persisted) {
+        if (scheduler.finish(solution.getUid())) {
+            // 之前因用户达到上限而推迟的任务
+            compileExecutor.execute(this::compileNext);
+        }
+
+        try {
+            if (persisted) {
+                channel.basicAck(deliveryTag, false);
+            } else {
+                channel.basicNack(deliveryTag, false, true);
             }
+        } catch (IOException e) {
+            // 通道已关闭，消息未确认，会被重新投递
+            log.error("确认消息失败({}): {}", solution.getSolutionId(), e.getMessage());
         }
     }
 }
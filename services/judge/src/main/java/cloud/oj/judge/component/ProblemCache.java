@@ -0,0 +1,113 @@
+package cloud.oj.judge.component;
+
+import cloud.oj.judge.config.AppConfig;
+import cloud.oj.judge.dao.ProblemDao;
+import cloud.oj.judge.entity.Problem;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 题目资源限制的缓存
+ * <p>core 更新题目时版本 +1，后台线程定时批量查询已缓存题目的版本，版本变化时移除</p>
+ */
+@Slf4j
+@Component
+public class ProblemCache {
+
+    private static final int MAX_SIZE = 1024;
+
+    private final ProblemDao problemDao;
+
+    private final String dataDir;
+
+    private final Cache<Integer, Problem> cache = Caffeine.newBuilder()
+            .maximumSize(MAX_SIZE)
+            .recordStats()
+            .build();
+
+    // problemId -> 测试点数量，测试数据更新时版本不变，定时过期
+    private final Cache<Integer, Integer> testCount = Caffeine.newBuilder()
+            .maximumSize(MAX_SIZE)
+            .expireAfterWrite(Duration.ofMinutes(1))
+            .build();
+
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+        var thread = new Thread(r, "PROBLEM-REFRESH");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ProblemCache(AppConfig appConfig, ProblemDao problemDao, MeterRegistry registry) {
+        this.problemDao = problemDao;
+        this.dataDir = appConfig.getFileDir() + "data/";
+        CaffeineCacheMetrics.monitor(registry, cache, "problem");
+
+        var interval = appConfig.getProblemRefreshInterval();
+        refresher.scheduleWithFixedDelay(this::refresh, interval, interval, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * 查询题目，未缓存时从数据库读取
+     *
+     * @return {@link Problem}，不存在时为 null
+     */
+    public Problem get(int problemId) {
+        return cache.get(problemId, problemDao::getById);
+    }
+
+    /**
+     * 测试点(*.in)数量，没有输入文件时为 1
+     */
+    public int getTestCount(int problemId) {
+        return testCount.get(problemId, id -> {
+            var files = new File(dataDir + id).list((dir, name) -> name.endsWith(".in"));
+            return files == null ? 1 : Math.max(1, files.length);
+        });
+    }
+
+    /**
+     * 移除版本已变化的题目
+     */
+    private void refresh() {
+        var ids = new HashSet<>(cache.asMap().keySet());
+
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        try {
+            for (var p : problemDao.getVersions(ids)) {
+                ids.remove(p.getProblemId());
+                var problem = cache.getIfPresent(p.getProblemId());
+
+                if (problem != null && problem.getVersion() != p.getVersion()) {
+                    cache.invalidate(p.getProblemId());
+                    log.info("题目({})已更新", p.getProblemId());
+                }
+            }
+
+            // 剩下的是已不存在的题目
+            cache.invalidateAll(ids);
+        } catch (Exception e) {
+            log.warn("查询题目版本失败: {}", ExceptionUtils.getRootCause(e).getMessage());
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package cloud.oj.judge.component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * 子进程启动器，编译器和判题程序都由此启动
+ * <p>每次调用使用独立的 {@link Command}，stdout/stderr 由后台线程读入有界缓冲区</p>
+ * <p>超过期限时结束整个进程树，并记录启动耗时和运行耗时</p>
+ */
+@Slf4j
+@Component
+public class ProcessLauncher {
+
+    // 读取输出流的线程
+    private final ExecutorService drainer = Executors.newCachedThreadPool(r -> {
+        var thread = new Thread(r, "PROC-IO");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final MeterRegistry registry;
+
+    public ProcessLauncher(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * 命令
+     *
+     * @param name        名称，用于统计
+     * @param args        命令和参数
+     * @param directory   工作目录
+     * @param timeout     期限，超过后结束进程树
+     * @param outputLimit stdout/stderr 各自保留的最大字节数，超出部分丢弃
+     */
+    public record Command(String name, List<String> args, File directory, Duration timeout, int outputLimit) {
+        public Command {
+            args = List.copyOf(args);
+        }
+    }
+
+    /**
+     * 运行结果
+     *
+     * @param exitCode 退出码，超时为 -1
+     * @param timedOut 是否超时
+     * @param spawn    启动耗时
+     * @param elapsed  启动到退出的耗时
+     */
+    public record Result(int exitCode, boolean timedOut, String stdout, String stderr,
+                         Duration spawn, Duration elapsed) {
+    }
+
+    /**
+     * 已启动的进程
+     */
+    public class Execution {
+        private final Command command;
+        private final Process process;
+        private final Future<byte[]> stdout;
+        private final Future<byte[]> stderr;
+        private final long startAt;
+        private final long spawn;
+
+        private Execution(Command command, Process process, long startAt, long spawn) {
+            this.command = command;
+            this.process = process;
+            this.startAt = startAt;
+            this.spawn = spawn;
+            this.stdout = drainer.submit(() -> drain(process.getInputStream(), command.outputLimit()));
+            this.stderr = drainer.submit(() -> drain(process.getErrorStream(), command.outputLimit()));
+        }
+
+        /**
+         * 等待进程退出，超过期限时结束进程树
+         */
+        public Result await() throws InterruptedException {
+            var deadline = startAt + command.timeout().toNanos();
+            var timedOut = false;
+
+            try {
+                if (!process.waitFor(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    timedOut = true;
+                    log.warn("{} 超时，结束进程树(pid={})", command.name(), process.pid());
+                    killTree();
+                    process.waitFor();
+                }
+            } catch (InterruptedException e) {
+                killTree();
+                throw e;
+            }
+
+            var elapsed = System.nanoTime() - startAt;
+            registry.timer("judge.process.run", "name", command.name()).record(elapsed, TimeUnit.NANOSECONDS);
+
+            return new Result(
+                    timedOut ? -1 : process.exitValue(),
+                    timedOut,
+                    collect(stdout),
+                    collect(stderr),
+                    Duration.ofNanos(spawn),
+                    Duration.ofNanos(elapsed)
+            );
+        }
+
+        public void killTree() {
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly();
+        }
+    }
+
+    /**
+     * 启动进程，不等待
+     */
+    public Execution start(Command command) throws IOException {
+        var builder = new ProcessBuilder(command.args()).directory(command.directory());
+        var startAt = System.nanoTime();
+        var process = builder.start();
+        var spawn = System.nanoTime() - startAt;
+
+        Timer.builder("judge.process.spawn")
+                .tag("name", command.name())
+                .register(registry)
+                .record(spawn, TimeUnit.NANOSECONDS);
+
+        return new Execution(command, process, startAt, spawn);
+    }
+
+    /**
+     * 启动进程并等待退出
+     */
+    public Result run(Command command) throws IOException, InterruptedException {
+        return start(command).await();
+    }
+
+    /**
+     * 读取输出流，只保留前 limit 字节，其余读出后丢弃，避免管道写满阻塞子进程
+     */
+    private static byte[] drain(InputStream in, int limit) throws IOException {
+        var out = new ByteArrayOutputStream(Math.min(limit, 8192));
+        var buf = new byte[8192];
+        int n;
+
+        try (in) {
+            while ((n = in.read(buf)) != -1) {
+                var keep = Math.min(n, limit - out.size());
+
+                if (keep > 0) {
+                    out.write(buf, 0, keep);
+                }
+            }
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * 进程已退出，输出流应很快读完；孙进程仍持有管道时放弃读取
+     */
+    private static String collect(Future<byte[]> future) throws InterruptedException {
+        try {
+            return new String(future.get(1, TimeUnit.SECONDS), StandardCharsets.UTF_8);
+        } catch (ExecutionException | TimeoutException e) {
+            future.cancel(true);
+            return "";
+        }
+    }
+}
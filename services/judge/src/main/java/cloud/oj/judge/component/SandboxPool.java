@@ -0,0 +1,255 @@
+package cloud.oj.judge.component;
+
+import cloud.oj.judge.config.AppConfig;
+import cloud.oj.judge.utils.Mounts;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 沙箱池，每个判题 CPU 一个预先挂载好运行环境的 chroot 根目录
+ * <p>启动时挂载一次，关闭时卸载，判题程序使用 --mounted 跳过挂载和卸载</p>
+ * <p>沙箱与工作区在同一文件系统({@link WorkspacePool#getSandboxRoot()})，运行前将工作区的文件移入沙箱，运行后移回工作区，
+ * 都只需重命名</p>
+ */
+@Slf4j
+@Component
+public class SandboxPool {
+
+    // 只读挂载的系统目录
+    private static final List<String> BIND_DIRS = List.of("proc", "etc", "bin", "usr", "lib", "lib64");
+
+    // 沙箱自身的目录，不属于用户文件
+    private static final Set<String> ENV_DIRS = Set.of("proc", "etc", "bin", "usr", "lib", "lib64", "dev", "tmp");
+
+    /**
+     * 沙箱
+     *
+     * @param cpu     对应的 CPU
+     * @param dir     根目录
+     * @param mounted 是否已挂载运行环境，未挂载时由判题程序自行挂载
+     */
+    public record Sandbox(int cpu, File dir, boolean mounted, ReentrantLock lock) {
+    }
+
+    private final ProcessLauncher processLauncher;
+
+    private final Path root;
+
+    private final boolean isRoot = "root".equals(System.getProperty("user.name"));
+
+    private final ConcurrentHashMap<Integer, Sandbox> sandboxes = new ConcurrentHashMap<>();
+
+    public SandboxPool(AppConfig appConfig, WorkspacePool workspacePool, ProcessLauncher processLauncher) {
+        this.processLauncher = processLauncher;
+        // 上次运行残留的沙箱已由工作区池卸载并移除
+        this.root = workspacePool.getSandboxRoot();
+        appConfig.getCpus().forEach(this::sandbox);
+        log.info("沙箱: {} 个", sandboxes.size());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        Mounts.unmountUnder(processLauncher, root, Mounts.list());
+    }
+
+    /**
+     * 租用 CPU 对应的沙箱，并将工作区中的文件移入
+     */
+    public Sandbox lease(int cpu, File workspace) throws IOException {
+        var sandbox = sandbox(cpu);
+        sandbox.lock().lock();
+
+        try {
+            move(workspace.toPath(), sandbox.dir().toPath());
+        } catch (IOException e) {
+            release(sandbox, workspace);
+            throw e;
+        }
+
+        return sandbox;
+    }
+
+    /**
+     * 尝试租用空闲的沙箱，用于分片运行，并复制另一个沙箱中的用户文件
+     *
+     * @return 沙箱正在使用时为 null
+     */
+    public Sandbox tryLease(int cpu, Sandbox from) {
+        var sandbox = sandbox(cpu);
+
+        if (!sandbox.lock().tryLock()) {
+            return null;
+        }
+
+        try {
+            copy(from.dir().toPath(), sandbox.dir().toPath());
+            return sandbox;
+        } catch (IOException e) {
+            log.warn("复制到沙箱失败({}): {}", sandbox.dir(), e.getMessage());
+            release(sandbox, null);
+            return null;
+        }
+    }
+
+    /**
+     * 将沙箱中的用户文件移回工作区，清空 /tmp 和 /dev 后归还
+     * <p>工作区中已存在的文件(分片复制的文件)不覆盖，直接删除</p>
+     *
+     * @param workspace 为 null 时只清空
+     */
+    public void release(Sandbox sandbox, File workspace) {
+        try {
+            if (workspace != null) {
+                move(sandbox.dir().toPath(), workspace.toPath());
+            }
+
+            clean(sandbox.dir().toPath());
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("清理沙箱失败({}): {}", sandbox.dir(), e.getMessage());
+        } finally {
+            sandbox.lock().unlock();
+        }
+    }
+
+    private Sandbox sandbox(int cpu) {
+        return sandboxes.computeIfAbsent(cpu, this::create);
+    }
+
+    /**
+     * 创建沙箱目录并挂载运行环境
+     */
+    private Sandbox create(int cpu) {
+        var dir = root.resolve(String.valueOf(cpu));
+        var mounted = isRoot;
+
+        try {
+            for (var name : ENV_DIRS) {
+                Files.createDirectories(dir.resolve(name));
+            }
+
+            // 上次运行残留的用户文件
+            try (var entries = Files.list(dir)) {
+                for (var entry : entries.toList()) {
+                    if (!ENV_DIRS.contains(entry.getFileName().toString())) {
+                        FileUtils.forceDelete(entry.toFile());
+                    }
+                }
+            }
+
+            var devNull = dir.resolve("dev/null");
+
+            if (!Files.exists(devNull, LinkOption.NOFOLLOW_LINKS)) {
+                Files.createFile(devNull);
+            }
+
+            if (mounted) {
+                mounted = Mounts.mount(processLauncher, "--bind", "/dev/null", devNull.toString());
+
+                for (var name : BIND_DIRS) {
+                    var src = Path.of("/", name);
+
+                    if (mounted && Files.isDirectory(src)) {
+                        mounted = Mounts.mount(processLauncher, "--bind", "-o", "ro",
+                                src.toString(), dir.resolve(name).toString());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.warn("创建沙箱失败({}): {}", dir, e.getMessage());
+            mounted = false;
+        }
+
+        if (isRoot && !mounted) {
+            // 部分挂载失败时交给判题程序自行挂载
+            Mounts.unmountUnder(processLauncher, dir, Mounts.list());
+        }
+
+        return new Sandbox(cpu, dir.toFile(), mounted, new ReentrantLock());
+    }
+
+    /**
+     * 移动目录中的用户文件，目标已存在的跳过
+     */
+    private static void move(Path from, Path to) throws IOException {
+        try (var entries = Files.list(from)) {
+            for (var entry : entries.toList()) {
+                var name = entry.getFileName().toString();
+
+                if (ENV_DIRS.contains(name)) {
+                    continue;
+                }
+
+                var target = to.resolve(name);
+
+                if (Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+                    continue;
+                }
+
+                if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                    // 与工作区在同一文件系统，直接重命名
+                    FileUtils.moveDirectory(entry.toFile(), target.toFile());
+                } else {
+                    Files.move(entry, target);
+                }
+            }
+        }
+    }
+
+    /**
+     * 复制目录中的用户文件，保留可执行权限
+     */
+    private static void copy(Path from, Path to) throws IOException {
+        try (var entries = Files.list(from)) {
+            for (var entry : entries.toList()) {
+                var name = entry.getFileName().toString();
+
+                if (ENV_DIRS.contains(name)) {
+                    continue;
+                }
+
+                if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                    FileUtils.copyDirectory(entry.toFile(), to.resolve(name).toFile());
+                } else {
+                    Files.copy(entry, to.resolve(name), StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+                }
+            }
+        }
+    }
+
+    /**
+     * 删除未移回的用户文件，清空 /tmp，/dev 中只保留 null
+     */
+    private static void clean(Path dir) throws IOException {
+        try (var entries = Files.list(dir)) {
+            for (var entry : entries.toList()) {
+                if (!ENV_DIRS.contains(entry.getFileName().toString())) {
+                    FileUtils.forceDelete(entry.toFile());
+                }
+            }
+        }
+
+        FileUtils.cleanDirectory(dir.resolve("tmp").toFile());
+
+        try (var entries = Files.list(dir.resolve("dev"))) {
+            for (var entry : entries.toList()) {
+                if (!entry.getFileName().toString().equals("null")) {
+                    FileUtils.forceDelete(entry.toFile());
+                }
+            }
+        }
+    }
+}
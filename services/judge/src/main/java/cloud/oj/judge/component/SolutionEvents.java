@@ -0,0 +1,33 @@
+package cloud.oj.judge.component;
+
+import cloud.oj.judge.config.RabbitConfig;
+import cloud.oj.judge.entity.Solution;
+import cloud.oj.judge.entity.SolutionEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * 发布提交的状态和结果，core 据此推送给等待结果的客户端
+ * <p>事件只用于推送，发送失败不影响判题</p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SolutionEvents {
+
+    private final RabbitTemplate rabbitTemplate;
+
+    /**
+     * @param state {@link cloud.oj.judge.constant.State}
+     */
+    public void publish(Solution solution, int state) {
+        try {
+            rabbitTemplate.convertAndSend(RabbitConfig.SOLUTION_EVENTS, "", new SolutionEvent(solution, state));
+        } catch (AmqpException e) {
+            log.warn("发布提交事件失败({}): {}", solution.getSolutionId(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package cloud.oj.judge.component;
+
+import cloud.oj.judge.config.AppConfig;
+import cloud.oj.judge.dao.SourceDao;
+import cloud.oj.judge.utils.SourceCodec;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 后台压缩已有的未压缩代码(升级前保存的数据)
+ * <p>按 solutionId 分批读取，压缩后以 JDBC 批量更新写回，批次之间暂停，减少对判题的影响</p>
+ * <p>读取时兼容未压缩的数据，迁移中断不影响使用，下次启动继续</p>
+ */
+@Slf4j
+@Component
+public class SourceMigrator implements SmartInitializingSingleton {
+
+    // 批次之间的暂停时间(毫秒)
+    private static final long PAUSE = 200;
+
+    private final SourceDao sourceDao;
+
+    private final SqlSessionFactory sqlSessionFactory;
+
+    private final int batchSize;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        var thread = new Thread(r, "SOURCE-MIGRATE");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private int after = 0;
+
+    private long total = 0;
+
+    private long saved = 0;
+
+    public SourceMigrator(AppConfig appConfig, SourceDao sourceDao, SqlSessionFactory sqlSessionFactory) {
+        this.sourceDao = sourceDao;
+        this.sqlSessionFactory = sqlSessionFactory;
+        this.batchSize = appConfig.getSourceMigrateBatch();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (batchSize > 0) {
+            executor.schedule(this::migrate, 10, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private void migrate() {
+        try {
+            var sources = sourceDao.getUncompressed(after, batchSize);
+
+            if (sources.isEmpty()) {
+                if (total > 0) {
+                    log.info("代码压缩完成: {} 条, 节省 {} KB", total, saved >> 10);
+                }
+
+                executor.shutdown();
+                return;
+            }
+
+            try (var session = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+                var dao = session.getMapper(SourceDao.class);
+
+                for (var source : sources) {
+                    var code = SourceCodec.encode(new String(source.getCode(), StandardCharsets.UTF_8));
+                    saved += source.getCode().length - code.length;
+                    dao.updateCode(source.getSolutionId(), code);
+                }
+
+                session.flushStatements();
+                session.commit();
+            }
+
+            after = sources.get(sources.size() - 1).getSolutionId();
+            total += sources.size();
+            log.debug("代码压缩: {} 条, 到 {}", total, after);
+            executor.schedule(this::migrate, PAUSE, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.error("代码压缩失败: {}", ExceptionUtils.getRootCause(e).getMessage());
+            // 稍后重试
+            executor.schedule(this::migrate, 1, TimeUnit.MINUTES);
+        }
+    }
+}
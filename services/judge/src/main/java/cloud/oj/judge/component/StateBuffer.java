@@ -0,0 +1,142 @@
+package cloud.oj.judge.component;
+
+import cloud.oj.judge.config.AppConfig;
+import cloud.oj.judge.dao.SolutionDao;
+import cloud.oj.judge.entity.Timeline;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 判题中间状态(编译中、运行中)和各阶段时间的延迟写入
+ * <p>同一提交的状态只保留最新的一个，由后台线程定时以 JDBC 批量更新写入</p>
+ * <p>写入最终结果前调用 {@link #discard}，SQL 不会覆盖已完成的提交</p>
+ * <p>各阶段时间只用于排查，写入失败时丢弃</p>
+ */
+@Slf4j
+@Component
+public class StateBuffer {
+
+    private final SolutionDao solutionDao;
+
+    private final SqlSessionFactory sqlSessionFactory;
+
+    private final int interval;
+
+    // solutionId -> state
+    private final ConcurrentHashMap<Integer, Integer> pending = new ConcurrentHashMap<>();
+
+    private final ConcurrentLinkedQueue<Timeline> timelines = new ConcurrentLinkedQueue<>();
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        var thread = new Thread(r, "STATE-FLUSH");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public StateBuffer(AppConfig appConfig, SolutionDao solutionDao, SqlSessionFactory sqlSessionFactory) {
+        this.solutionDao = solutionDao;
+        this.sqlSessionFactory = sqlSessionFactory;
+        this.interval = appConfig.getStateFlushInterval();
+
+        if (interval > 0) {
+            flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flusher.shutdown();
+        flush();
+    }
+
+    /**
+     * 更新状态，间隔为 0 时直接写入
+     *
+     * @param state {@link cloud.oj.judge.constant.State}
+     */
+    public void update(Integer solutionId, int state) {
+        if (interval > 0) {
+            pending.put(solutionId, state);
+        } else {
+            solutionDao.updateState(solutionId, state);
+        }
+    }
+
+    /**
+     * 丢弃未写入的状态，写入最终结果前调用
+     */
+    public void discard(Integer solutionId) {
+        pending.remove(solutionId);
+    }
+
+    /**
+     * 保存各阶段的时间，间隔为 0 时直接写入
+     */
+    public void save(Timeline timeline) {
+        if (interval > 0) {
+            timelines.add(timeline);
+            return;
+        }
+
+        try {
+            solutionDao.saveTimeline(timeline);
+        } catch (Exception e) {
+            log.warn("写入时间线失败({}): {}", timeline.getSolutionId(), ExceptionUtils.getRootCause(e).getMessage());
+        }
+    }
+
+    private synchronized void flush() {
+        flushTimelines();
+
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        var batch = new HashMap<>(pending);
+
+        try (var session = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+            var dao = session.getMapper(SolutionDao.class);
+            batch.forEach(dao::updateState);
+            session.flushStatements();
+            session.commit();
+            // 写入期间更新过的状态留到下一批
+            batch.forEach(pending::remove);
+        } catch (Exception e) {
+            log.warn("写入状态失败: {}", ExceptionUtils.getRootCause(e).getMessage());
+        }
+    }
+
+    private void flushTimelines() {
+        if (timelines.isEmpty()) {
+            return;
+        }
+
+        var batch = new ArrayList<Timeline>();
+        Timeline timeline;
+
+        while ((timeline = timelines.poll()) != null) {
+            batch.add(timeline);
+        }
+
+        try (var session = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+            var dao = session.getMapper(SolutionDao.class);
+            batch.forEach(dao::saveTimeline);
+            session.flushStatements();
+            session.commit();
+        } catch (Exception e) {
+            log.warn("写入时间线失败: {} 条, {}", batch.size(), ExceptionUtils.getRootCause(e).getMessage());
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package cloud.oj.judge.component;
+
+import cloud.oj.judge.config.AppConfig;
+import cloud.oj.judge.entity.SubmitData;
+import cloud.oj.judge.error.GenericException;
+import cloud.oj.judge.service.SubmitService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * 直接提交模式的组提交
+ * <p>请求线程放入队列后等待，由一个线程取出已到达的全部提交(不等待凑满)，
+ * 通过 {@link SubmitService#submit} 在同一个事务中写入并发送到判题队列，再返回各自的 solutionId</p>
+ * <p>写入一批期间到达的提交自然成为下一批</p>
+ */
+@Slf4j
+@Component
+public class SubmitBatcher {
+
+    // 请求线程等待写入的时间(秒)
+    private static final long TIMEOUT = 30;
+
+    private record Pending(SubmitData data, CompletableFuture<Integer> future) {
+    }
+
+    private final SubmitService submitService;
+
+    private final int batchSize;
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        var thread = new Thread(r, "SUBMIT-BATCH");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SubmitBatcher(AppConfig appConfig, @Lazy SubmitService submitService) {
+        this.submitService = submitService;
+        this.batchSize = appConfig.getSubmitBatchSize();
+
+        if (appConfig.isDirectSubmit()) {
+            writer.execute(this::loop);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        writer.shutdownNow();
+    }
+
+    /**
+     * 写入提交，阻塞到所在的批次提交事务
+     *
+     * @return solutionId
+     */
+    public Integer submit(SubmitData data) {
+        var pending = new Pending(data, new CompletableFuture<>());
+        queue.add(pending);
+
+        try {
+            return pending.future().get(TIMEOUT, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof GenericException ge) {
+                throw ge;
+            }
+
+            throw new GenericException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    "提交失败: " + ExceptionUtils.getRootCause(e).getMessage());
+        } catch (TimeoutException e) {
+            throw new GenericException(HttpStatus.SERVICE_UNAVAILABLE, "提交超时，请查询提交记录");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GenericException(HttpStatus.SERVICE_UNAVAILABLE, "提交被中断");
+        }
+    }
+
+    private void loop() {
+        var batch = new ArrayList<Pending>(batchSize);
+
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                batch.clear();
+            }
+        }
+
+        // 关闭时未写入的提交
+        queue.forEach(p -> p.future().completeExceptionally(
+                new GenericException(HttpStatus.SERVICE_UNAVAILABLE, "服务正在关闭")
+        ));
+    }
+
+    /**
+     * 写入失败时逐条重试，避免一条提交导致整批失败
+     */
+    private void write(List<Pending> batch) {
+        try {
+            submitService.submit(batch.stream().map(Pending::data).toList(), false);
+            batch.forEach(SubmitBatcher::complete);
+        } catch (Exception e) {
+            log.warn("批量写入提交失败，逐条重试: {}", ExceptionUtils.getRootCause(e).getMessage());
+
+            for (var pending : batch) {
+                try {
+                    // 整批可能已写入，只是发送失败
+                    submitService.submit(List.of(pending.data()), true);
+                    complete(pending);
+                } catch (Exception ex) {
+                    pending.future().completeExceptionally(ex);
+                }
+            }
+        }
+    }
+
+    private static void complete(Pending pending) {
+        var solutionId = pending.data().getSolutionId();
+
+        if (solutionId != null) {
+            pending.future().complete(solutionId);
+        } else {
+            pending.future().completeExceptionally(new GenericException(HttpStatus.NOT_FOUND, "题目不存在"));
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package cloud.oj.judge.component;
+
+import cloud.oj.judge.config.AppConfig;
+import cloud.oj.judge.utils.FileCleaner;
+import cloud.oj.judge.utils.Mounts;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * 工作区池
+ * <p>启动时预先创建固定数量的工作区，判题时租用，结束后由 {@link FileCleaner} 清空并归还</p>
+ * <p>以 root 运行时工作区和 {@link SandboxPool} 的沙箱挂载在同一个 tmpfs 中，文件移入、移出沙箱只需重命名；
+ * tmpfs 的容量为所有工作区和运行线程的总和，每个工作区的大小在编译后检查</p>
+ */
+@Slf4j
+@Component
+public class WorkspacePool {
+
+    private static final String TRASH_PREFIX = ".trash-";
+
+    private static final String TMPFS_DIR = "tmpfs";
+
+    /**
+     * 工作区
+     *
+     * @param id  编号
+     * @param dir 目录
+     */
+    public record Workspace(int id, File dir) {
+    }
+
+    private final AppConfig appConfig;
+
+    private final FileCleaner fileCleaner;
+
+    private final ProcessLauncher processLauncher;
+
+    private final BlockingQueue<Workspace> free = new LinkedBlockingQueue<>();
+
+    private final long quota;
+
+    private final Path root;
+
+    // 工作区和沙箱所在的目录，使用 tmpfs 时为挂载点
+    private final Path base;
+
+    private final boolean tmpfs;
+
+    private boolean mounted = false;
+
+    private int size = 0;
+
+    public WorkspacePool(AppConfig appConfig, FileCleaner fileCleaner, ProcessLauncher processLauncher) {
+        this.appConfig = appConfig;
+        this.fileCleaner = fileCleaner;
+        this.processLauncher = processLauncher;
+        this.quota = (long) appConfig.getWorkspaceQuota() << 20;
+
+        this.root = Path.of(appConfig.getWorkspaceDir());
+        this.tmpfs = quota > 0 && "root".equals(System.getProperty("user.name"));
+        this.base = tmpfs ? root.resolve(TMPFS_DIR) : root;
+        var mounts = Mounts.list();
+        discard(root, mounts);
+
+        if (!root.equals(Path.of(appConfig.getCodeDir()))) {
+            discard(Path.of(appConfig.getCodeDir()), mounts);
+        }
+
+        ensure(appConfig.getCpus().size());
+    }
+
+    @PreDestroy
+    public synchronized void destroy() {
+        if (mounted) {
+            Mounts.unmountUnder(processLauncher, base, Mounts.list());
+        }
+    }
+
+    /**
+     * 沙箱的根目录，与工作区在同一文件系统
+     */
+    public Path getSandboxRoot() {
+        return base.resolve("sandbox");
+    }
+
+    /**
+     * 保证工作区数量足够，编译线程、运行队列、运行线程各自持有一个
+     *
+     * @param runThreads 运行线程数量
+     */
+    public synchronized void ensure(int runThreads) {
+        var target = appConfig.getCompileThreads() + appConfig.getRunQueueSize() + runThreads;
+
+        if (target <= size) {
+            return;
+        }
+
+        if (tmpfs) {
+            // 每个工作区，以及分片运行时每个运行线程复制的一份
+            mountTmpfs((long) appConfig.getWorkspaceQuota() * (target + runThreads));
+        }
+
+        for (int i = size; i < target; i++) {
+            var dir = base.resolve("slot-" + i).toFile();
+
+            try {
+                // 残留的目录未能移走时直接使用
+                Files.createDirectories(dir.toPath());
+            } catch (IOException e) {
+                throw new IllegalStateException("创建工作区失败: " + dir, e);
+            }
+
+            free.add(new Workspace(i, dir));
+        }
+
+        size = target;
+        log.info("工作区: {} 个, tmpfs: {}", size, mounted);
+    }
+
+    /**
+     * 挂载 tmpfs，已挂载时调整容量
+     * <p>挂载失败时使用普通目录，工作区的大小仍在编译后检查</p>
+     *
+     * @param capacity 容量(MiB)
+     */
+    private void mountTmpfs(long capacity) {
+        var dir = base.toString();
+
+        if (mounted) {
+            if (!Mounts.mount(processLauncher, "-o", "remount,size=" + capacity + "m", dir)) {
+                log.warn("调整 tmpfs 容量失败: {}", dir);
+            }
+
+            return;
+        }
+
+        try {
+            Files.createDirectories(base);
+        } catch (IOException e) {
+            throw new IllegalStateException("创建工作区目录失败: " + dir, e);
+        }
+
+        mounted = Mounts.mount(processLauncher, "-t", "tmpfs", "-o", "size=" + capacity + "m,mode=0755", "tmpfs", dir);
+    }
+
+    /**
+     * 租用工作区，没有空闲的工作区时阻塞
+     */
+    public Workspace lease() throws InterruptedException {
+        return free.take();
+    }
+
+    /**
+     * 归还工作区，清空后可再次租用
+     *
+     * @param keep 是否保留代码文件(复制到临时代码目录)
+     */
+    public void release(Workspace workspace, Integer solutionId, boolean keep) {
+        var archive = keep ? Path.of(appConfig.getCodeDir(), String.valueOf(solutionId)) : null;
+        fileCleaner.clean(workspace.dir().toPath(), archive, () -> free.add(workspace));
+    }
+
+    /**
+     * 工作区是否超出容量，tmpfs 只限制所有工作区的总和
+     */
+    public boolean exceedsQuota(File dir) {
+        if (quota == 0) {
+            return false;
+        }
+
+        return FileUtils.sizeOfDirectory(dir) > quota;
+    }
+
+    /**
+     * 将上次运行残留的文件移入回收目录，由 {@link FileCleaner} 在后台删除
+     * <p>同一文件系统内只需要重命名，不会因残留文件过多而拖慢启动</p>
+     */
+    private void discard(Path dir, List<Path> mounts) {
+        var trash = dir.resolve(TRASH_PREFIX + System.currentTimeMillis());
+
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            log.warn("创建目录失败({}): {}", dir, e.getMessage());
+            return;
+        }
+
+        try (var entries = Files.list(dir)) {
+            Files.createDirectories(trash);
+
+            for (var entry : entries.toList()) {
+                if (entry.equals(trash)) {
+                    continue;
+                }
+
+                if (entry.getFileName().toString().startsWith(TRASH_PREFIX)) {
+                    // 上次未删除完的回收目录
+                    fileCleaner.delete(entry);
+                    continue;
+                }
+
+                // 挂载点不能重命名，先卸载(包括 tmpfs 和其中沙箱的挂载点)
+                Mounts.unmountUnder(processLauncher, entry, mounts);
+
+                Files.move(entry, trash.resolve(entry.getFileName()));
+            }
+        } catch (IOException e) {
+            log.warn("清理残留文件失败({}): {}", dir, e.getMessage());
+        }
+
+        fileCleaner.delete(trash);
+    }
+}
@@ -19,14 +19,90 @@ public class AppConfig {
 
     private final String codeDir;
 
+    // 工作区目录，默认与临时代码目录相同
+    private final String workspaceDir;
+
+    // 每个工作区的容量(MiB)，以 root 运行时挂载为 tmpfs
+    private final int workspaceQuota;
+
     private final String judgeCpus;
 
+    // 编译缓存容量(MiB)，0 表示不使用缓存
+    private final int compileCacheSize;
+
+    // 编译线程数量，与判题 CPU 无关
+    private final int compileThreads;
+
+    // 编译完成等待运行的队列长度
+    private final int runQueueSize;
+
+    // 在判题服务进程内编译 Java
+    private final boolean inProcessJavac;
+
+    // 判题程序运行期限(秒)，超过后结束进程树
+    private final int runTimeout;
+
+    // 中间状态的写入间隔(毫秒)，0 表示直接写入
+    private final int stateFlushInterval;
+
+    // 题目缓存检查版本的间隔(秒)
+    private final int problemRefreshInterval;
+
+    // 提交检查缓存的刷新间隔(秒)
+    private final int admissionCacheTtl;
+
+    // 每批保存的提交数量
+    private final int submitBatchSize;
+
+    // 等待凑满一批的时间(毫秒)
+    private final int submitBatchTimeout;
+
+    // 后台压缩已有代码的每批数量，0 表示不压缩
+    private final int sourceMigrateBatch;
+
+    // 判题队列额外预取的数量，用于本地调度
+    private final int judgeLookahead;
+
+    // 任务最长等待时间(秒)，超过后不再按优先级和耗时排序
+    private final int judgeMaxWait;
+
+    // 每个用户同时判题的最大数量
+    private final int judgeUserLimit;
+
+    // 分片运行时每个分片至少包含的测试点数量，0 表示不分片
+    private final int shardMinTests;
+
+    // 提交直接写入数据库并返回 solutionId，不经过提交队列
+    private final boolean directSubmit;
+
     private List<Integer> cpus;
 
-    public AppConfig(ApplicationContext context, String fileDir, String judgeCpus) {
+    public AppConfig(ApplicationContext context, String fileDir, String judgeCpus, Integer compileCacheSize,
+                     Integer compileThreads, Integer runQueueSize, Boolean inProcessJavac,
+                     Integer runTimeout, String workspaceDir, Integer workspaceQuota,
+                     Integer stateFlushInterval, Integer problemRefreshInterval,
+                     Integer admissionCacheTtl, Integer submitBatchSize, Integer submitBatchTimeout,
+                     Integer sourceMigrateBatch, Integer judgeLookahead, Integer judgeMaxWait,
+                     Integer judgeUserLimit, Integer shardMinTests, Boolean directSubmit) {
         var home = System.getProperty("user.home");
         this.applicationContext = context;
         this.judgeCpus = Optional.ofNullable(judgeCpus).orElse("1");
+        this.compileCacheSize = Optional.ofNullable(compileCacheSize).orElse(512);
+        this.compileThreads = Math.max(1, Optional.ofNullable(compileThreads).orElse(2));
+        this.inProcessJavac = Optional.ofNullable(inProcessJavac).orElse(true);
+        this.runTimeout = Optional.ofNullable(runTimeout).orElse(600);
+        this.workspaceQuota = Math.max(0, Optional.ofNullable(workspaceQuota).orElse(256));
+        this.stateFlushInterval = Math.max(0, Optional.ofNullable(stateFlushInterval).orElse(20));
+        this.problemRefreshInterval = Math.max(1, Optional.ofNullable(problemRefreshInterval).orElse(5));
+        this.admissionCacheTtl = Math.max(1, Optional.ofNullable(admissionCacheTtl).orElse(5));
+        this.submitBatchSize = Math.max(1, Optional.ofNullable(submitBatchSize).orElse(50));
+        this.submitBatchTimeout = Math.max(1, Optional.ofNullable(submitBatchTimeout).orElse(20));
+        this.sourceMigrateBatch = Math.max(0, Optional.ofNullable(sourceMigrateBatch).orElse(500));
+        this.judgeLookahead = Math.max(0, Optional.ofNullable(judgeLookahead).orElse(32));
+        this.judgeMaxWait = Math.max(1, Optional.ofNullable(judgeMaxWait).orElse(30));
+        this.judgeUserLimit = Math.max(1, Optional.ofNullable(judgeUserLimit).orElse(2));
+        this.shardMinTests = Math.max(0, Optional.ofNullable(shardMinTests).orElse(10));
+        this.directSubmit = Optional.ofNullable(directSubmit).orElse(false);
 
         if (fileDir == null) {
             this.fileDir = home + "/.local/cloud-oj/";
@@ -38,12 +114,23 @@ public class AppConfig {
 
         this.codeDir = this.fileDir + "code/";
 
+        if (workspaceDir == null) {
+            this.workspaceDir = this.codeDir;
+        } else if (!workspaceDir.endsWith("/")) {
+            this.workspaceDir = workspaceDir + "/";
+        } else {
+            this.workspaceDir = workspaceDir;
+        }
+
         createDir(this.fileDir + "data");
         createDir(this.codeDir);
+        createDir(this.workspaceDir);
         configCpus();
+        this.runQueueSize = Math.max(1, Optional.ofNullable(runQueueSize).orElse(cpus.size()));
 
         log.info("数据文件目录: {}", this.fileDir);
         log.info("临时代码目录: {}", this.codeDir);
+        log.info("工作区目录: {}", this.workspaceDir);
     }
 
     private void configCpus() {
@@ -1,12 +1,15 @@
 package cloud.oj.judge.config;
 
+import cloud.oj.judge.component.CpuAllocator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
-import java.util.HashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
@@ -18,54 +21,84 @@ import java.util.concurrent.ThreadPoolExecutor;
 public class AsyncConfig {
     private final static String THREAD_PREFIX = "JUDGE-";
 
+    private final static String COMPILE_THREAD_PREFIX = "COMPILE-";
+
     private final AppConfig appConfig;
 
-    public AsyncConfig(AppConfig appConfig) {
+    private final CpuAllocator cpuAllocator;
+
+    private final MeterRegistry registry;
+
+    public AsyncConfig(AppConfig appConfig, CpuAllocator cpuAllocator, MeterRegistry registry) {
         this.appConfig = appConfig;
+        this.cpuAllocator = cpuAllocator;
+        this.registry = registry;
     }
 
     /**
      * 阻塞策略，线程都被占用时阻塞提交
+     * <p>线程池已关闭时拒绝，由调用方处理(如消息重新入队)</p>
      */
     private static class BlockPolicy implements RejectedExecutionHandler {
         @Override
         public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
-            if (!executor.isShutdown()) {
-                try {
-                    executor.getQueue().put(r);
-                } catch (InterruptedException e) {
-                    throw new RejectedExecutionException("Task " + r + " rejected");
-                }
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("Task " + r + " rejected");
+            }
+
+            try {
+                executor.getQueue().put(r);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Task " + r + " rejected");
             }
         }
     }
 
+    /**
+     * 编译线程池
+     * <p>线程不绑定 CPU，数量单独配置</p>
+     */
     @Bean
-    public Executor judgeExecutor() {
-        var threads = appConfig.getCpus().size();
+    public Executor compileExecutor() {
+        var threads = appConfig.getCompileThreads();
 
         var executor = new ThreadPoolTaskExecutor();
-        executor.setThreadNamePrefix(THREAD_PREFIX);
+        executor.setThreadNamePrefix(COMPILE_THREAD_PREFIX);
         executor.setCorePoolSize(threads);
         executor.setMaxPoolSize(threads);
-        // 队列由 RabbitMQ 承担，容量设为 0 构造同步队列
-        executor.setQueueCapacity(0);
+        // 队列长度受预取数量限制，任务由 JudgeScheduler 决定执行哪一条
+        executor.setQueueCapacity(Integer.MAX_VALUE);
         executor.setRejectedExecutionHandler(new BlockPolicy());
         executor.initialize();
+        monitor(executor, "compile");
         return executor;
     }
 
+    /**
+     * 运行线程池
+     * <p>线程数等于可同时运行的数量，运行时从 {@link CpuAllocator} 租用 CPU，只运行判题程序</p>
+     * <p>编译完成的任务在有界队列中等待，队列满时阻塞编译线程</p>
+     */
     @Bean
-    public HashMap<String, Integer> cpus() {
-        var cpuMap = new HashMap<String, Integer>();
-        var cpuList = appConfig.getCpus();
+    public ThreadPoolTaskExecutor judgeExecutor() {
+        var threads = cpuAllocator.getSlots();
 
-        // 将 CPU 与线程名称绑定
-        for (int i = 0; i < cpuList.size(); i++) {
-            log.info("{} -> CPU-{}", THREAD_PREFIX + i, cpuList.get(i));
-            cpuMap.put(THREAD_PREFIX + i, cpuList.get(i));
-        }
+        var executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(THREAD_PREFIX);
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(appConfig.getRunQueueSize());
+        executor.setRejectedExecutionHandler(new BlockPolicy());
+        executor.initialize();
+        monitor(executor, "judge");
+        return executor;
+    }
 
-        return cpuMap;
+    /**
+     * 线程池指标(executor.active、executor.queued 等)
+     */
+    private void monitor(ThreadPoolTaskExecutor executor, String name) {
+        new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), name, Tags.empty()).bindTo(registry);
     }
 }
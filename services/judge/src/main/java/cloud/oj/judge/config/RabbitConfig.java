@@ -1,12 +1,21 @@
 package cloud.oj.judge.config;
 
+import cloud.oj.judge.constant.Priority;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.FanoutExchange;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.io.IOException;
+
+@Slf4j
 @Configuration
 public class RabbitConfig {
 
@@ -14,6 +23,8 @@ public class RabbitConfig {
 
     public static final String JUDGE_QUEUE = "JudgeQueue";
 
+    public static final String SOLUTION_EVENTS = "SolutionEvents";
+
     @Bean
     public Queue submitQueue() {
         return QueueBuilder.durable(SUBMIT_QUEUE)
@@ -22,13 +33,95 @@ public class RabbitConfig {
                 .build();
     }
 
+    /**
+     * 判题队列，支持优先级 {@link Priority}
+     */
+    @Bean
+    public Queue judgeQueue(ConnectionFactory connectionFactory) {
+        var queue = QueueBuilder.durable(JUDGE_QUEUE)
+                .maxPriority(Priority.MAX)
+                .build();
+        upgrade(connectionFactory, queue);
+        return queue;
+    }
+
+    /**
+     * 提交事件，每个 core 实例绑定一个临时队列
+     */
     @Bean
-    public Queue judgeQueue() {
-        return new Queue(JUDGE_QUEUE);
+    public FanoutExchange solutionEvents() {
+        return new FanoutExchange(SOLUTION_EVENTS);
     }
 
     @Bean
     public MessageConverter jsonMessageConverter() {
         return new Jackson2JsonMessageConverter();
     }
+
+    /**
+     * 判题队列的监听容器
+     * <p>预取数量为流水线容量(编译线程 + 运行队列 + 运行线程)加上调度窗口，
+     * 多出的消息在本地由 {@link cloud.oj.judge.component.JudgeScheduler} 排序</p>
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory judgeListenerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            AppConfig appConfig) {
+        var factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setPrefetchCount(
+                appConfig.getCompileThreads() + appConfig.getRunQueueSize() + appConfig.getCpus().size()
+                        + appConfig.getJudgeLookahead()
+        );
+        return factory;
+    }
+
+    /**
+     * 提交队列的监听容器(批量)
+     * <p>取满 batchSize 条或等待 receiveTimeout 后交给监听器</p>
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory submitListenerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            AppConfig appConfig) {
+        var factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(appConfig.getSubmitBatchSize());
+        factory.setReceiveTimeout((long) appConfig.getSubmitBatchTimeout());
+        factory.setPrefetchCount(appConfig.getSubmitBatchSize() * 2);
+        return factory;
+    }
+
+    /**
+     * 旧版本的判题队列不支持优先级，参数不同无法重新声明
+     * <p>旧队列为空时删除，由 RabbitAdmin 重新声明；不为空时需要等待处理完后重启</p>
+     */
+    private static void upgrade(ConnectionFactory connectionFactory, Queue queue) {
+        try (var connection = connectionFactory.createConnection()) {
+            try (var channel = connection.createChannel(false)) {
+                channel.queueDeclare(queue.getName(), queue.isDurable(), queue.isExclusive(), queue.isAutoDelete(),
+                        queue.getArguments());
+                return;
+            } catch (IOException e) {
+                // 参数不一致，通道已被关闭
+            }
+
+            try (var channel = connection.createChannel(false)) {
+                var count = channel.queueDeclarePassive(queue.getName()).getMessageCount();
+
+                if (count == 0) {
+                    channel.queueDelete(queue.getName(), false, true);
+                    log.info("已删除不支持优先级的判题队列");
+                } else {
+                    log.error("判题队列不支持优先级，且有 {} 条消息未处理，处理完后重启", count);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("检查判题队列失败: {}", e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,15 @@
+package cloud.oj.judge.constant;
+
+/**
+ * 判题优先级，数值越大越优先
+ */
+public class Priority {
+    // 管理员提交(测试、重判)
+    public static final int ADMIN = 0;
+    // 练习
+    public static final int PRACTICE = 1;
+    // 进行中的竞赛
+    public static final int CONTEST = 2;
+
+    public static final int MAX = CONTEST;
+}
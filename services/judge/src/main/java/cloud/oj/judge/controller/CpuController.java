@@ -0,0 +1,69 @@
+package cloud.oj.judge.controller;
+
+import cloud.oj.judge.component.CpuAllocator;
+import cloud.oj.judge.component.WorkspacePool;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("admin")
+public class CpuController {
+
+    private final CpuAllocator cpuAllocator;
+
+    private final WorkspacePool workspacePool;
+
+    private final ThreadPoolTaskExecutor judgeExecutor;
+
+    public CpuController(CpuAllocator cpuAllocator,
+                         WorkspacePool workspacePool,
+                         @Qualifier("judgeExecutor") ThreadPoolTaskExecutor judgeExecutor) {
+        this.cpuAllocator = cpuAllocator;
+        this.workspacePool = workspacePool;
+        this.judgeExecutor = judgeExecutor;
+    }
+
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    private static class CpuInfo {
+        private List<Integer> cpus;
+        // 可同时运行的数量(物理核心数)
+        private int slots;
+    }
+
+    /**
+     * 获取判题 CPU
+     */
+    @GetMapping("cpus")
+    public ResponseEntity<?> getCpus() {
+        return ResponseEntity.ok(new CpuInfo(cpuAllocator.getCpus(), cpuAllocator.getSlots()));
+    }
+
+    /**
+     * 修改判题 CPU，运行线程数随之调整
+     */
+    @PutMapping("cpus")
+    public synchronized ResponseEntity<?> setCpus(@RequestBody List<Integer> cpus) {
+        var slots = cpuAllocator.resize(cpus);
+        workspacePool.ensure(slots);
+
+        // 先调整较大的一项，避免 core > max
+        if (slots > judgeExecutor.getMaxPoolSize()) {
+            judgeExecutor.setMaxPoolSize(slots);
+            judgeExecutor.setCorePoolSize(slots);
+        } else {
+            judgeExecutor.setCorePoolSize(slots);
+            judgeExecutor.setMaxPoolSize(slots);
+        }
+
+        return ResponseEntity.ok(new CpuInfo(cpuAllocator.getCpus(), slots));
+    }
+}
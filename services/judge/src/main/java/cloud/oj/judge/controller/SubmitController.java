@@ -14,6 +14,9 @@ import org.springframework.web.bind.annotation.RestController;
 @RestController
 public class SubmitController {
 
+    // 网关生成的关联 Id
+    private static final String TRACE_ID = "X-Trace-Id";
+
     private final SubmitService submitService;
 
     public SubmitController(SubmitService submitService) {
@@ -24,8 +27,11 @@ public class SubmitController {
      * 提交代码，普通用户
      */
     @PostMapping("submit")
-    public ResponseEntity<?> submit(@RequestHeader Integer uid, @RequestBody SubmitData data) {
+    public ResponseEntity<?> submit(@RequestHeader Integer uid,
+                                    @RequestHeader(name = TRACE_ID, required = false) String traceId,
+                                    @RequestBody SubmitData data) {
         data.setUid(uid);
+        data.setTraceId(traceId);
         return submitService.submitCode(data, false);
     }
 
@@ -33,8 +39,11 @@ public class SubmitController {
      * 提交代码，管理员
      */
     @PostMapping("admin/submit")
-    public ResponseEntity<?> adminSubmit(@RequestHeader Integer uid, @RequestBody SubmitData data) {
+    public ResponseEntity<?> adminSubmit(@RequestHeader Integer uid,
+                                         @RequestHeader(name = TRACE_ID, required = false) String traceId,
+                                         @RequestBody SubmitData data) {
         data.setUid(uid);
+        data.setTraceId(traceId);
         return submitService.submitCode(data, true);
     }
 }
@@ -3,6 +3,8 @@ package cloud.oj.judge.dao;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
 
+import java.util.List;
+
 @Mapper
 public interface InviteeDao {
 
@@ -15,4 +17,11 @@ public interface InviteeDao {
             )
             """)
     Boolean checkInvitee(Integer contestId, Integer uid);
+
+    @Select("""
+            select uid
+            from invitee
+            where contest_id = #{contestId}
+            """)
+    List<Integer> getInvitees(Integer contestId);
 }
@@ -3,9 +3,26 @@ package cloud.oj.judge.dao;
 import cloud.oj.judge.entity.Problem;
 import org.apache.ibatis.annotations.Mapper;
 
+import java.util.Collection;
+import java.util.List;
+
 @Mapper
 public interface ProblemDao {
     Problem getById(int problemId);
 
+    /**
+     * 查询题目的版本，题目更新时版本 +1
+     *
+     * @return 只包含 problemId 和 version 的 {@link Problem}
+     */
+    List<Problem> getVersions(Collection<Integer> problemIds);
+
     boolean isEnable(int problemId);
+
+    /**
+     * 查询题目标题
+     *
+     * @return 只包含 problemId 和 title 的 {@link Problem}，不存在的题目不返回
+     */
+    List<Problem> getTitles(Collection<Integer> problemIds);
 }
@@ -1,40 +1,57 @@
 package cloud.oj.judge.dao;
 
+import cloud.oj.judge.entity.BestScore;
 import org.apache.ibatis.annotations.Mapper;
 
 @Mapper
 public interface RankingDao {
     /**
-     * 提交次数 +1
+     * 创建并锁定最高分记录(已存在则只锁定)
      *
-     * @param uid  用户 Id
-     * @param time 更新时间
+     * @param contestId 竞赛 Id，非竞赛为 0
      */
-    void incCommitted(Integer uid, Long time);
+    void initBestScore(Integer uid, Integer contestId, Integer problemId);
 
     /**
-     * 提交次数 +1（竞赛）
+     * 查询并锁定最高分记录
      *
-     * @param uid       用户 Id
-     * @param contestId 竞赛 Id
-     * @param time      更新时间
+     * @param contestId 竞赛 Id，非竞赛为 0
+     * @return {@link BestScore}
      */
-    void incCommittedForContest(Integer uid, Integer contestId, Long time);
+    BestScore getBestScoreForUpdate(Integer uid, Integer contestId, Integer problemId);
+
+    void updateBestScore(Integer uid, Integer contestId, Integer problemId, Double score, Double passRate);
+
+    /**
+     * 按增量更新排名，提交次数 +1
+     *
+     * @param score      分数增量
+     * @param passed     通过题目数量增量
+     * @param time       本次提交的时间
+     * @param newHighest 是否更新排名时间
+     */
+    void add(Integer uid, Double score, Integer passed, Long time, Boolean newHighest);
 
     /**
-     * 更新排名
+     * 按增量更新排名（竞赛），提交次数 +1
      *
-     * @param uid  用户 Id
-     * @param time 本次提交的时间
+     * @param contestId  竞赛 Id
+     * @param score      分数增量
+     * @param passed     通过题目数量增量
+     * @param time       本次提交的时间
+     * @param newHighest 是否更新排名时间
+     */
+    void addForContest(Integer uid, Integer contestId, Double score, Integer passed, Long time, Boolean newHighest);
+
+    /**
+     * 最高分记录是否为空
      */
-    void update(Integer uid, Long time);
+    boolean isBestScoreEmpty();
 
     /**
-     * 更新排名（竞赛）
+     * 从已判题的提交生成最高分记录
      *
-     * @param contestId 竞赛 Id
-     * @param uid       用户 Id
-     * @param time      本次提交的时间
+     * @return 生成的记录数
      */
-    void updateForContest(Integer contestId, Integer uid, Long time);
+    int backfillBestScore();
 }
@@ -1,21 +1,27 @@
 package cloud.oj.judge.dao;
 
 import cloud.oj.judge.entity.Solution;
+import cloud.oj.judge.entity.SubmitData;
+import cloud.oj.judge.entity.Timeline;
 import org.apache.ibatis.annotations.Mapper;
 
+import java.util.List;
+
 @Mapper
 public interface SolutionDao {
     /**
-     * 从记录找出指定题目的历史最高分
+     * 批量增加提交(多行 insert ... returning)，title 需已设置
+     * <p>不依赖 Id 连续(auto_increment_increment、锁模式)，需要 MariaDB 10.5+</p>
      *
-     * @param uid       用户 Id
-     * @param problemId 题目 Id
-     * @param contestId 竞赛 Id，可为空
-     * @return 分数
+     * @return 生成的 solutionId，与参数顺序相同
      */
-    Double getMaxScoreOfUser(Integer uid, Integer problemId, Integer contestId);
+    List<Integer> createBatch(List<Solution> solutions);
 
-    void create(Solution solution);
+    /**
+     * 查询已写入的提交(solutionId, uid, submitTime, state)，用于重复投递的消息去重
+     * <p>按 uid 和 submitTime 分别过滤，结果可能多于参数，由调用方按 (uid, submitTime) 匹配</p>
+     */
+    List<Solution> getSubmitted(List<SubmitData> batch);
 
     /**
      * 更新状态
@@ -30,4 +36,11 @@ public interface SolutionDao {
      * @param solution {@link Solution}
      */
     void updateWithResult(Solution solution);
+
+    /**
+     * 保存提交各阶段的时间，重复判题时覆盖
+     *
+     * @param timeline {@link Timeline}
+     */
+    void saveTimeline(Timeline timeline);
 }
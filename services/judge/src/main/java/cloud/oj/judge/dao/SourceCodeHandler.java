@@ -0,0 +1,44 @@
+package cloud.oj.judge.dao;
+
+import cloud.oj.judge.utils.SourceCodec;
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * source_code.code 的类型转换，写入时压缩，读取时解压
+ */
+public class SourceCodeHandler extends BaseTypeHandler<String> {
+
+    /**
+     * 解析 mapper 时创建，在启动时检查压缩字典
+     */
+    public SourceCodeHandler() {
+        SourceCodec.verify();
+    }
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, String parameter, JdbcType jdbcType)
+            throws SQLException {
+        ps.setBytes(i, SourceCodec.encode(parameter));
+    }
+
+    @Override
+    public String getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return SourceCodec.decode(rs.getBytes(columnName));
+    }
+
+    @Override
+    public String getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return SourceCodec.decode(rs.getBytes(columnIndex));
+    }
+
+    @Override
+    public String getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return SourceCodec.decode(cs.getBytes(columnIndex));
+    }
+}
@@ -1,8 +1,22 @@
 package cloud.oj.judge.dao;
 
+import cloud.oj.judge.entity.Solution;
+import cloud.oj.judge.entity.Source;
 import org.apache.ibatis.annotations.Mapper;
 
+import java.util.List;
+
 @Mapper
 public interface SourceDao {
-    void create(Integer solutionId, String source);
+    /**
+     * 批量保存代码(多行 insert)，代码压缩后写入
+     */
+    void createBatch(List<Solution> solutions);
+
+    /**
+     * 查询未压缩的代码，按 solutionId 递增
+     */
+    List<Source> getUncompressed(int after, int limit);
+
+    void updateCode(int solutionId, byte[] code);
 }
@@ -0,0 +1,14 @@
+package cloud.oj.judge.entity;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 用户在每道题目(每个竞赛)的最高分
+ */
+@Getter
+@Setter
+public class BestScore {
+    private double score;
+    private double passRate;
+}
@@ -7,7 +7,17 @@ import lombok.Setter;
 @Setter
 public class Contest {
     private String contestName;
-    private boolean started;
-    private boolean ended;
+    // 开始时间，10 位 UNIX
+    private long startAt;
+    // 结束时间，10 位 UNIX
+    private long endAt;
     private int languages;
+
+    public boolean isStarted() {
+        return startAt <= System.currentTimeMillis() / 1000;
+    }
+
+    public boolean isEnded() {
+        return endAt <= System.currentTimeMillis() / 1000;
+    }
 }
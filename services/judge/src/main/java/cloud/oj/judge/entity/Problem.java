@@ -6,8 +6,11 @@ import lombok.Setter;
 @Getter
 @Setter
 public class Problem {
+    private int problemId;
+    private String title;
     private int timeout;
     private int memoryLimit;
     private int outputLimit;
     private int score;
+    private int version;
 }
@@ -5,6 +5,8 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.util.List;
+
 /**
  * 对应判题程序返回结果
  */
@@ -13,9 +15,15 @@ import lombok.Setter;
 @NoArgsConstructor
 @AllArgsConstructor
 public class Result {
+    public static final int AC = 1;  // 通过
+    public static final int TLE = 2; // 超时
+    public static final int MLE = 3; // 超内存
+    public static final int PA = 4;  // 部分通过
+    public static final int WA = 5;  // 答案错误
     public static final int CE = 6;  // 编译错误
     public static final int RE = 7;  // 运行错误
     public static final int IE = 8;  // 内部错误
+    public static final int OLE = 9; // 输出超限
 
     private Integer result;
     private Integer total;
@@ -24,6 +32,8 @@ public class Result {
     private Long time;
     private Long memory;
     private String error;
+    // 分片运行时每个测试点的结果：[下标, 结果, 时间, 内存]
+    private List<long[]> tests;
 
     public static Result withError(Integer result, String error) {
         var instance = new Result();
@@ -1,7 +1,9 @@
 package cloud.oj.judge.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import cloud.oj.judge.constant.Priority;
 import lombok.Setter;
 
 import static cloud.oj.judge.constant.State.WAITING;
@@ -26,8 +28,15 @@ public class Solution {
     private Long memory = 0L;
     private String errorInfo;
     private Long submitTime;
+    // 批量插入时使用，不发送到队列
+    @JsonIgnore
+    private String title;
     // 用于队列，不属于数据库字段
     private String sourceCode;
+    // 判题优先级，不属于数据库字段
+    private int priority = Priority.PRACTICE;
+    // 各阶段的时间，随消息传递
+    private Timeline timeline = new Timeline();
 
     public Solution(Integer uid, Integer problemId, Integer contestId,
                     Integer language, Long submitTime, String sourceCode) {
@@ -0,0 +1,48 @@
+package cloud.oj.judge.entity;
+
+import lombok.Getter;
+
+/**
+ * 提交状态事件，发送到 {@link cloud.oj.judge.config.RabbitConfig#SOLUTION_EVENTS}
+ * <p>state、result 从 0 开始，与 core 接口一致</p>
+ */
+@Getter
+public class SolutionEvent {
+    private final Integer solutionId;
+    private final Integer uid;
+    private final Integer problemId;
+    private final Integer contestId;
+    private final Long submitTime;
+    private final Integer state;
+    private Integer result;
+    private Integer total;
+    private Integer passed;
+    private Double passRate;
+    private Double score;
+    private Long time;
+    private Long memory;
+    private String errorInfo;
+
+    /**
+     * @param state {@link cloud.oj.judge.constant.State}
+     */
+    public SolutionEvent(Solution solution, int state) {
+        this.solutionId = solution.getSolutionId();
+        this.uid = solution.getUid();
+        this.problemId = solution.getProblemId();
+        this.contestId = solution.getContestId();
+        this.submitTime = solution.getSubmitTime();
+        this.state = state - 1;
+
+        if (solution.getResult() != null) {
+            this.result = solution.getResult() - 1;
+            this.total = solution.getTotal();
+            this.passed = solution.getPassed();
+            this.passRate = solution.getPassRate();
+            this.score = solution.getScore();
+            this.time = solution.getTime();
+            this.memory = solution.getMemory();
+            this.errorInfo = solution.getErrorInfo();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package cloud.oj.judge.entity;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class Source {
+    private int solutionId;
+    private byte[] code;
+}
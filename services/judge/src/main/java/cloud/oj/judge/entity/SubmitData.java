@@ -12,4 +12,10 @@ public class SubmitData {
     private String sourceCode;
     private Integer language;
     private Long submitTime;
+    // 由服务端设置 {@link cloud.oj.judge.constant.Priority}
+    private Integer priority;
+    // 由网关设置的关联 Id，没有时由服务端生成
+    private String traceId;
+    // 写入数据库后设置
+    private Integer solutionId;
 }
@@ -0,0 +1,14 @@
+package cloud.oj.judge.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 直接提交模式的返回值
+ */
+@Getter
+@AllArgsConstructor
+public class SubmitResult {
+    private Integer solutionId;
+    private Long submitTime;
+}
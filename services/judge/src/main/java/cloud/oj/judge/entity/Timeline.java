@@ -0,0 +1,34 @@
+package cloud.oj.judge.entity;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 提交各阶段的时间(毫秒级时间戳)，随判题消息传递，结果写入后保存
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class Timeline {
+    private Integer solutionId;
+    // 网关生成的关联 Id
+    private String traceId;
+    // 接收提交
+    private Long acceptAt;
+    // 写入数据库
+    private Long insertAt;
+    // 判题服务取出
+    private Long dequeueAt;
+    private Long compileStart;
+    private Long compileEnd;
+    private Long runStart;
+    private Long runEnd;
+    // 判题结果写入数据库
+    private Long persistAt;
+
+    public Timeline(String traceId, Long acceptAt) {
+        this.traceId = traceId;
+        this.acceptAt = acceptAt;
+    }
+}
@@ -7,18 +7,23 @@ import cloud.oj.judge.entity.SubmitData;
 import cloud.oj.judge.service.SubmitService;
 import com.rabbitmq.client.Channel;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.messaging.Message;
 import org.springframework.messaging.handler.annotation.Headers;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 /**
  * 消息接收(提交和判题)
  */
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class SolutionReceiver {
@@ -29,26 +34,90 @@ public class SolutionReceiver {
 
     /**
      * 监听判题队列
+     * <p>判题结果写入数据库后才确认消息，判题线程被占满时阻塞</p>
      */
-    @RabbitListener(queues = RabbitConfig.JUDGE_QUEUE, ackMode = "MANUAL", concurrency = "1")
+    @RabbitListener(queues = RabbitConfig.JUDGE_QUEUE, containerFactory = "judgeListenerFactory",
+            ackMode = "MANUAL", concurrency = "1")
     public void handleJudgement(@Payload Solution solution, @Headers Map<String, Object> headers, Channel channel)
             throws IOException {
-        judgementEntry.judge(solution);
-        channel.basicAck((Long) headers.get(AmqpHeaders.DELIVERY_TAG), false);
+        var deliveryTag = (Long) headers.get(AmqpHeaders.DELIVERY_TAG);
+
+        try {
+            judgementEntry.judge(solution, channel, deliveryTag);
+        } catch (TaskRejectedException e) {
+            // 判题线程池已关闭，重新入队
+            channel.basicNack(deliveryTag, false, true);
+        }
     }
 
     /**
-     * 监听提交队列
+     * 监听提交队列(批量)
+     * <p>一次取出多条消息，在同一个事务中写入并发送到判题队列(等待确认)，成功后确认整批</p>
+     * <p>写入或发送失败时逐条重试，单条仍失败的重新入队一次，再次失败后丢弃；
+     * 确认失败只记录日志，消息重新投递时按 (uid, submitTime) 去重，不会再次写入</p>
      */
-    @RabbitListener(queues = RabbitConfig.SUBMIT_QUEUE, ackMode = "MANUAL", concurrency = "10")
-    public void handleSubmission(@Payload SubmitData data, @Headers Map<String, Object> headers, Channel channel)
-            throws IOException {
+    @RabbitListener(queues = RabbitConfig.SUBMIT_QUEUE, containerFactory = "submitListenerFactory",
+            ackMode = "MANUAL", concurrency = "10")
+    public void handleSubmission(List<Message<SubmitData>> messages, Channel channel) throws IOException {
+        var last = deliveryTag(messages.get(messages.size() - 1));
+        var redelivered = messages.stream().anyMatch(SolutionReceiver::isRedelivered);
+
         try {
-            submitService.submit(data);
-            channel.basicAck((Long) headers.get(AmqpHeaders.DELIVERY_TAG), false);
+            submitService.submit(messages.stream().map(Message::getPayload).toList(), redelivered);
         } catch (Exception e) {
-            // submit 失败，重新入队
-            channel.basicNack((Long) headers.get(AmqpHeaders.DELIVERY_TAG), false, true);
+            log.warn("批量保存提交失败，逐条重试: {}", e.getMessage());
+            // 逐条提交，避免一条消息导致整批反复重新入队
+            for (var message : messages) {
+                submitOne(message, channel);
+            }
+
+            return;
         }
+
+        ack(channel, last, true);
+    }
+
+    /**
+     * 单条写入，整批可能已写入，检查已写入的提交
+     */
+    private void submitOne(Message<SubmitData> message, Channel channel) throws IOException {
+        var deliveryTag = deliveryTag(message);
+
+        try {
+            submitService.submit(List.of(message.getPayload()), true);
+        } catch (Exception e) {
+            var redelivered = isRedelivered(message);
+
+            if (redelivered) {
+                var data = message.getPayload();
+                log.error("提交重试后仍失败，丢弃: uid={}, problemId={}, submitTime={}, {}",
+                        data.getUid(), data.getProblemId(), data.getSubmitTime(), e.getMessage());
+            }
+
+            // 第一次失败时重新入队
+            channel.basicNack(deliveryTag, false, !redelivered);
+            return;
+        }
+
+        ack(channel, deliveryTag, false);
+    }
+
+    /**
+     * 确认消息，失败时消息会重新投递，由去重避免再次写入
+     */
+    private static void ack(Channel channel, long deliveryTag, boolean multiple) {
+        try {
+            channel.basicAck(deliveryTag, multiple);
+        } catch (Exception e) {
+            log.error("确认提交消息失败({}): {}", deliveryTag, e.getMessage());
+        }
+    }
+
+    private static boolean isRedelivered(Message<?> message) {
+        return Boolean.TRUE.equals(message.getHeaders().get(AmqpHeaders.REDELIVERED));
+    }
+
+    private static long deliveryTag(Message<?> message) {
+        return (Long) message.getHeaders().get(AmqpHeaders.DELIVERY_TAG);
     }
 }
@@ -0,0 +1,78 @@
+package cloud.oj.judge.service;
+
+import cloud.oj.judge.dao.RankingDao;
+import cloud.oj.judge.entity.Solution;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Slf4j
+@Service
+public class RankingService {
+
+    // 死锁或锁等待超时时重试的次数
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final RankingDao rankingDao;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public RankingService(RankingDao rankingDao, PlatformTransactionManager transactionManager) {
+        this.rankingDao = rankingDao;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    }
+
+    /**
+     * 更新排名
+     * <p>隔离级别：读提交，只包含排名的写入，不持有连接等待判题</p>
+     * <p>锁定用户在该题目的最高分记录，按最高分的变化量更新排名，不扫描历史提交</p>
+     * <p>死锁时事务已回滚，重新执行整个事务</p>
+     *
+     * @param solution 已判题的 {@link Solution}
+     */
+    public void update(Solution solution) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> apply(solution));
+                return;
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+
+                log.warn("更新排名时发生死锁({}), 第 {} 次重试", solution.getSolutionId(), attempt);
+            }
+        }
+    }
+
+    private void apply(Solution solution) {
+        var uid = solution.getUid();
+        var problemId = solution.getProblemId();
+        var contestId = solution.getContestId() == null ? 0 : solution.getContestId();
+        var submitTime = solution.getSubmitTime();
+
+        rankingDao.initBestScore(uid, contestId, problemId);
+        var best = rankingDao.getBestScoreForUpdate(uid, contestId, problemId);
+
+        var score = Math.max(best.getScore(), solution.getScore());
+        var passRate = Math.max(best.getPassRate(), solution.getPassRate());
+        var scoreDelta = score - best.getScore();
+        // 首次通过全部测试点
+        var passedDelta = passRate == 1 && best.getPassRate() < 1 ? 1 : 0;
+        var newHighest = scoreDelta > 0 || passedDelta > 0;
+
+        if (newHighest) {
+            rankingDao.updateBestScore(uid, contestId, problemId, score, passRate);
+        }
+
+        if (solution.getContestId() == null) {
+            rankingDao.add(uid, scoreDelta, passedDelta, submitTime, newHighest);
+        } else {
+            rankingDao.addForContest(uid, contestId, scoreDelta, passedDelta, submitTime, newHighest);
+        }
+    }
+}
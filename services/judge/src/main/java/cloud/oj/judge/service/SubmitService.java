@@ -1,29 +1,56 @@
 package cloud.oj.judge.service;
 
+import cloud.oj.judge.component.AdmissionCache;
+import cloud.oj.judge.component.SubmitBatcher;
+import cloud.oj.judge.config.AppConfig;
 import cloud.oj.judge.config.RabbitConfig;
+import cloud.oj.judge.constant.Priority;
+import cloud.oj.judge.constant.State;
 import cloud.oj.judge.dao.*;
+import cloud.oj.judge.entity.Problem;
 import cloud.oj.judge.entity.Solution;
 import cloud.oj.judge.entity.SubmitData;
+import cloud.oj.judge.entity.SubmitResult;
+import cloud.oj.judge.entity.Timeline;
 import cloud.oj.judge.error.GenericException;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.AmqpException;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class SubmitService {
 
-    private final ProblemDao problemDao;
+    // 等待发布确认的时间(毫秒)
+    private static final long CONFIRM_TIMEOUT = 10_000;
+
+    // 发送失败后重试的间隔(毫秒)
+    private static final long RETRY_DELAY = 1000;
+
+    // 发送判题消息的最多尝试次数
+    private static final int PUBLISH_ATTEMPTS = 3;
 
-    private final ContestDao contestDao;
+    private final AppConfig appConfig;
 
-    private final InviteeDao inviteeDao;
+    private final AdmissionCache admissionCache;
+
+    private final SubmitBatcher submitBatcher;
+
+    private final ProblemDao problemDao;
 
     private final SolutionDao solutionDao;
 
@@ -33,8 +60,26 @@ public class SubmitService {
 
     private final Queue judgeQueue;
 
+    private final TransactionTemplate transactionTemplate;
+
+    public SubmitService(AppConfig appConfig, AdmissionCache admissionCache, SubmitBatcher submitBatcher,
+                         ProblemDao problemDao, SolutionDao solutionDao, SourceDao sourceDao,
+                         RabbitTemplate rabbitTemplate, Queue judgeQueue,
+                         PlatformTransactionManager transactionManager) {
+        this.appConfig = appConfig;
+        this.admissionCache = admissionCache;
+        this.submitBatcher = submitBatcher;
+        this.problemDao = problemDao;
+        this.solutionDao = solutionDao;
+        this.sourceDao = sourceDao;
+        this.rabbitTemplate = rabbitTemplate;
+        this.judgeQueue = judgeQueue;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    }
+
     /**
-     * 提交到队列
+     * 提交到队列，直接提交模式下写入数据库后返回 solutionId
      *
      * @param data    {@link SubmitData}
      * @param isAdmin 是否为管理员
@@ -42,7 +87,14 @@ public class SubmitService {
      */
     public ResponseEntity<?> submitCode(SubmitData data, boolean isAdmin) {
         data.setSubmitTime(System.currentTimeMillis());
+
+        if (data.getTraceId() == null) {
+            // 未经过网关
+            data.setTraceId(UUID.randomUUID().toString());
+        }
+
         var contestId = data.getContestId();
+        data.setPriority(contestId != null ? Priority.CONTEST : isAdmin ? Priority.ADMIN : Priority.PRACTICE);
 
         if (data.getSourceCode().trim().isEmpty()) {
             throw new GenericException(HttpStatus.BAD_REQUEST, "代码为空，不准提交");
@@ -50,9 +102,10 @@ public class SubmitService {
 
         if (contestId != null) {
             // 竞赛提交
-            var contest = contestDao.getContest(contestId);
+            var contest = admissionCache.getContest(contestId)
+                    .orElseThrow(() -> new GenericException(HttpStatus.NOT_FOUND, "竞赛不存在"));
 
-            if (Boolean.FALSE.equals(inviteeDao.checkInvitee(contestId, data.getUid()))) {
+            if (!admissionCache.isInvitee(contestId, data.getUid())) {
                 throw new GenericException(HttpStatus.FORBIDDEN, "非邀请用户");
             }
 
@@ -73,34 +126,177 @@ public class SubmitService {
             }
         } else {
             // 非竞赛提交
-            if (!isAdmin && !problemDao.isEnable(data.getProblemId())) {
+            if (!isAdmin && !admissionCache.isProblemEnabled(data.getProblemId())) {
                 throw new GenericException(HttpStatus.FORBIDDEN, "未开放，不准提交");
             }
         }
 
-        rabbitTemplate.convertAndSend(RabbitConfig.SUBMIT_QUEUE, data);
+        if (appConfig.isDirectSubmit()) {
+            // 直接写入，按 solutionId 获取结果
+            var solutionId = submitBatcher.submit(data);
+            return ResponseEntity.ok(new SubmitResult(solutionId, data.getSubmitTime()));
+        }
+
+        rabbitTemplate.convertAndSend(RabbitConfig.SUBMIT_QUEUE, data, message -> {
+            message.getMessageProperties().setCorrelationId(data.getTraceId());
+            return message;
+        });
         return ResponseEntity.accepted().body(data.getSubmitTime());
     }
 
     /**
-     * 保存提交到数据库
+     * 批量保存提交到数据库，事务提交后发送到判题队列并等待确认
      * <p>隔离级别：读提交</p>
+     * <p>多行 insert 写入 solution 和 source_code；发送失败时重试 {@link #PUBLISH_ATTEMPTS} 次后抛出异常，
+     * 调用方不确认消息，重新投递时按 (uid, submitTime) 去重，已写入但未判题的重新发送(可能重复判题)</p>
+     * <p>题目不存在的提交被丢弃，其余的 {@link SubmitData#getSolutionId()} 被设置</p>
+     *
+     * @param dedup 是否检查已写入的提交，消息重新投递或整批失败后逐条重试时使用
      */
-    @Transactional(isolation = Isolation.READ_COMMITTED, rollbackFor = Exception.class)
-    public void submit(SubmitData submitData) throws AmqpException {
+    public void submit(List<SubmitData> batch, boolean dedup) {
+        var solutions = transactionTemplate.execute(status -> save(batch, dedup));
+
+        if (solutions != null && !solutions.isEmpty()) {
+            publish(solutions);
+        }
+    }
+
+    /**
+     * 写入新的提交
+     *
+     * @return 需要发送到判题队列的提交，包括已写入但未判题的
+     */
+    private List<Solution> save(List<SubmitData> batch, boolean dedup) {
+        var problemIds = batch.stream().map(SubmitData::getProblemId).collect(Collectors.toSet());
+        var titles = problemDao.getTitles(problemIds).stream()
+                .collect(Collectors.toMap(Problem::getProblemId, Problem::getTitle));
+        var submitted = dedup ? submitted(batch) : Map.<String, Solution>of();
+        var solutions = new ArrayList<Solution>(batch.size());
+        var accepted = new ArrayList<SubmitData>(batch.size());
+        var existing = new ArrayList<Solution>();
+
+        for (var data : batch) {
+            var title = titles.get(data.getProblemId());
+
+            if (title == null) {
+                log.warn("题目({})不存在，丢弃提交", data.getProblemId());
+                continue;
+            }
+
+            var solution = solution(data, title);
+            var saved = submitted.get(key(data.getUid(), data.getSubmitTime()));
+
+            if (saved != null) {
+                // 重复投递，已写入
+                data.setSolutionId(saved.getSolutionId());
+                solution.setSolutionId(saved.getSolutionId());
+
+                if (saved.getState() == State.WAITING) {
+                    existing.add(solution);
+                }
+
+                continue;
+            }
+
+            solutions.add(solution);
+            accepted.add(data);
+        }
+
+        if (!solutions.isEmpty()) {
+            var ids = solutionDao.createBatch(solutions);
+            var insertAt = System.currentTimeMillis();
+
+            if (ids.size() != solutions.size()) {
+                throw new IllegalStateException(
+                        "生成的 solutionId 数量不一致: " + ids.size() + "/" + solutions.size()
+                );
+            }
+
+            for (int i = 0; i < solutions.size(); i++) {
+                var solution = solutions.get(i);
+                solution.setSolutionId(ids.get(i));
+                solution.getTimeline().setInsertAt(insertAt);
+                accepted.get(i).setSolutionId(ids.get(i));
+            }
+
+            sourceDao.createBatch(solutions);
+        }
+
+        if (!existing.isEmpty()) {
+            log.info("重复投递的提交已写入，重新发送到判题队列: {}",
+                    existing.stream().map(Solution::getSolutionId).toList());
+            solutions.addAll(existing);
+        }
+
+        return solutions;
+    }
+
+    private static Solution solution(SubmitData data, String title) {
         var solution = new Solution(
-                submitData.getUid(),
-                submitData.getProblemId(),
-                submitData.getContestId(),
-                submitData.getLanguage(),
-                submitData.getSubmitTime(),
-                submitData.getSourceCode()
+                data.getUid(),
+                data.getProblemId(),
+                data.getContestId(),
+                data.getLanguage(),
+                data.getSubmitTime(),
+                data.getSourceCode()
         );
+        solution.setTitle(title);
+        solution.setTimeline(new Timeline(data.getTraceId(), data.getSubmitTime()));
+
+        if (data.getPriority() != null) {
+            solution.setPriority(data.getPriority());
+        } else if (data.getContestId() != null) {
+            solution.setPriority(Priority.CONTEST);
+        }
+
+        return solution;
+    }
+
+    /**
+     * 已写入的提交，(uid, submitTime) -> {@link Solution}
+     */
+    private Map<String, Solution> submitted(List<SubmitData> batch) {
+        return solutionDao.getSubmitted(batch).stream()
+                .collect(Collectors.toMap(s -> key(s.getUid(), s.getSubmitTime()), s -> s, (a, b) -> a));
+    }
 
-        solutionDao.create(solution);
-        // solutionId 由数据库生成
-        sourceDao.create(solution.getSolutionId(), submitData.getSourceCode());
-        // 发送到判题队列
-        rabbitTemplate.convertAndSend(judgeQueue.getName(), solution);
+    private static String key(Integer uid, Long submitTime) {
+        return uid + "@" + submitTime;
+    }
+
+    /**
+     * 发送到判题队列并等待确认，失败时重试，仍失败则抛出异常
+     * <p>部分消息已确认时重试会重复发送</p>
+     */
+    private void publish(List<Solution> solutions) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                rabbitTemplate.invoke(operations -> {
+                    solutions.forEach(solution -> operations.convertAndSend(judgeQueue.getName(), solution, message -> {
+                        var properties = message.getMessageProperties();
+                        properties.setPriority(solution.getPriority());
+                        properties.setCorrelationId(solution.getTimeline().getTraceId());
+                        return message;
+                    }));
+                    operations.waitForConfirmsOrDie(CONFIRM_TIMEOUT);
+                    return null;
+                });
+                return;
+            } catch (AmqpException e) {
+                if (attempt == PUBLISH_ATTEMPTS) {
+                    log.error("发送判题消息失败({} 个提交): {}", solutions.size(), e.getMessage());
+                    throw e;
+                }
+
+                log.warn("发送判题消息失败({} 个提交)，{} ms 后重试: {}", solutions.size(), RETRY_DELAY, e.getMessage());
+
+                try {
+                    TimeUnit.MILLISECONDS.sleep(RETRY_DELAY);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
     }
 }
@@ -1,34 +1,163 @@
 package cloud.oj.judge.utils;
 
-import cloud.oj.judge.config.AppConfig;
+import cloud.oj.judge.component.ProcessLauncher;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
-import java.io.File;
 import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 文件清理，删除判题产生的临时代码文件
+ * <p>由单个后台线程批量执行，删除前卸载目录下残留的挂载点，不会删除挂载进来的系统目录</p>
  */
 @Slf4j
 @Component
 public class FileCleaner {
 
-    private final AppConfig appConfig;
+    /**
+     * 清理任务
+     *
+     * @param path      被清理的目录
+     * @param keepSelf  只删除目录中的内容，保留目录本身
+     * @param archiveTo 删除前将目录中的文件复制到此目录，可为空
+     * @param then      完成后执行，可为空
+     */
+    private record Task(Path path, boolean keepSelf, Path archiveTo, Runnable then) {
+    }
+
+    private final BlockingQueue<Task> tasks = new LinkedBlockingQueue<>();
+
+    private final ProcessLauncher processLauncher;
+
+    private final Thread janitor;
+
+    public FileCleaner(ProcessLauncher processLauncher) {
+        this.processLauncher = processLauncher;
+        janitor = new Thread(this::loop, "JANITOR");
+        janitor.setDaemon(true);
+        janitor.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        janitor.interrupt();
+    }
+
+    /**
+     * 删除文件或目录
+     */
+    public void delete(Path path) {
+        tasks.add(new Task(path, false, null, null));
+    }
+
+    /**
+     * 清空目录
+     *
+     * @param archiveTo 清空前将目录中的文件复制到此目录，可为空
+     * @param then      完成后执行
+     */
+    public void clean(Path dir, Path archiveTo, Runnable then) {
+        tasks.add(new Task(dir, true, archiveTo, then));
+    }
+
+    private void loop() {
+        var batch = new ArrayList<Task>();
+
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(tasks.take());
+                // 短暂等待，将同一时间段内的清理合并为一批
+                TimeUnit.MILLISECONDS.sleep(10);
+            } catch (InterruptedException e) {
+                break;
+            }
+
+            tasks.drainTo(batch);
+            // 每批只读取一次挂载信息
+            var mounts = Mounts.list();
 
-    public FileCleaner(AppConfig appConfig) {
-        this.appConfig = appConfig;
-        FileUtils.deleteQuietly(new File(appConfig.getCodeDir()));
+            for (var task : batch) {
+                try {
+                    run(task, mounts);
+                } catch (Exception e) {
+                    log.warn("清理失败({}): {}", task.path(), e.getMessage());
+                } finally {
+                    if (task.then() != null) {
+                        task.then().run();
+                    }
+                }
+            }
+
+            log.debug("清理完成: {} 个目录", batch.size());
+            batch.clear();
+        }
     }
 
-    @Async
-    public void deleteTempFile(Integer solutionId) {
-        try {
-            FileUtils.deleteDirectory(new File(appConfig.getCodeDir() + solutionId));
-        } catch (IOException e) {
-            log.warn("删除失败: solutionId={}", solutionId);
+    private void run(Task task, List<Path> mounts) throws IOException {
+        var path = task.path();
+
+        if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+
+        if (task.archiveTo() != null) {
+            archive(path, task.archiveTo());
+        }
+
+        if (!task.keepSelf()) {
+            if (Mounts.unmountUnder(processLauncher, path, mounts)) {
+                FileUtils.deleteDirectory(path.toFile());
+            } else {
+                log.warn("存在无法卸载的挂载点，跳过删除: {}", path);
+            }
+
+            return;
         }
+
+        try (var children = Files.list(path)) {
+            for (var child : children.toList()) {
+                if (!Mounts.unmountUnder(processLauncher, child, mounts)) {
+                    log.warn("存在无法卸载的挂载点，跳过删除: {}", child);
+                    continue;
+                }
+
+                if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                    FileUtils.deleteDirectory(child.toFile());
+                } else {
+                    Files.deleteIfExists(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * 复制目录中的普通文件
+     */
+    private static void archive(Path dir, Path target) throws IOException {
+        Files.createDirectories(target);
+        Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) {
+                // 只保留用户文件，跳过运行环境目录
+                return d.equals(dir) ? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (attrs.isRegularFile()) {
+                    Files.copy(file, target.resolve(dir.relativize(file)), StandardCopyOption.REPLACE_EXISTING);
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+        });
     }
 }
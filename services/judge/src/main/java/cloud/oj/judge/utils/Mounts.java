@@ -0,0 +1,142 @@
+package cloud.oj.judge.utils;
+
+import cloud.oj.judge.component.ProcessLauncher;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 挂载点工具，读取 /proc/self/mountinfo
+ * <p>mount/umount 由 {@link ProcessLauncher} 启动，超时后结束进程，不阻塞启动和关闭</p>
+ */
+@Slf4j
+public final class Mounts {
+
+    private static final Path MOUNT_INFO = Path.of("/proc/self/mountinfo");
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private static final int OUTPUT_LIMIT = 4096;
+
+    private Mounts() {
+    }
+
+    /**
+     * 当前所有挂载点
+     */
+    public static List<Path> list() {
+        var mounts = new ArrayList<Path>();
+
+        if (!Files.isReadable(MOUNT_INFO)) {
+            return mounts;
+        }
+
+        try (var lines = Files.lines(MOUNT_INFO)) {
+            lines.forEach(line -> {
+                var fields = line.split(" ");
+
+                if (fields.length > 4) {
+                    mounts.add(Path.of(unescape(fields[4])));
+                }
+            });
+        } catch (IOException e) {
+            log.warn("读取挂载信息失败: {}", e.getMessage());
+        }
+
+        return mounts;
+    }
+
+    /**
+     * 卸载 path 及其子目录上的挂载点，由深到浅
+     *
+     * @return 是否全部卸载
+     */
+    public static boolean unmountUnder(ProcessLauncher launcher, Path path, List<Path> mounts) {
+        var base = normalize(path);
+        var targets = mounts.stream()
+                .filter(m -> m.startsWith(base))
+                .distinct()
+                .sorted(Comparator.comparingInt(Path::getNameCount).reversed())
+                .toList();
+        var ok = true;
+
+        for (var target : targets) {
+            ok &= umount(launcher, target.toString());
+        }
+
+        return ok;
+    }
+
+    public static boolean mount(ProcessLauncher launcher, String... args) {
+        var cmd = new ArrayList<String>();
+        cmd.add("mount");
+        cmd.addAll(List.of(args));
+        return exec(launcher, "mount", cmd);
+    }
+
+    public static boolean umount(ProcessLauncher launcher, String target) {
+        return exec(launcher, "umount", List.of("umount", "-l", target));
+    }
+
+    private static boolean exec(ProcessLauncher launcher, String name, List<String> cmd) {
+        try {
+            var result = launcher.run(new ProcessLauncher.Command(name, cmd, null, TIMEOUT, OUTPUT_LIMIT));
+
+            if (result.timedOut()) {
+                log.warn("{}: 超时", String.join(" ", cmd));
+                return false;
+            }
+
+            if (result.exitCode() != 0) {
+                log.warn("{}: {}", String.join(" ", cmd), (result.stderr() + result.stdout()).trim());
+                return false;
+            }
+
+            return true;
+        } catch (IOException e) {
+            log.warn("{}: {}", String.join(" ", cmd), e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static Path normalize(Path path) {
+        try {
+            return path.toRealPath();
+        } catch (IOException e) {
+            return path.toAbsolutePath().normalize();
+        }
+    }
+
+    /**
+     * mountinfo 中的空格等字符以八进制转义，如 \040
+     */
+    private static String unescape(String s) {
+        if (s.indexOf('\\') < 0) {
+            return s;
+        }
+
+        var sb = new StringBuilder();
+
+        for (int i = 0; i < s.length(); i++) {
+            var c = s.charAt(i);
+
+            if (c == '\\' && i + 3 < s.length()) {
+                sb.append((char) Integer.parseInt(s.substring(i + 1, i + 4), 8));
+                i += 3;
+            } else {
+                sb.append(c);
+            }
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,127 @@
+package cloud.oj.judge.component;
+
+import cloud.oj.judge.config.AppConfig;
+import cloud.oj.judge.constant.Priority;
+import cloud.oj.judge.entity.Problem;
+import cloud.oj.judge.entity.Solution;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JudgeSchedulerTests {
+
+    private final AppConfig appConfig = mock(AppConfig.class);
+
+    private final ProblemCache problemCache = mock(ProblemCache.class);
+
+    @BeforeEach
+    void setUp() {
+        when(appConfig.getJudgeMaxWait()).thenReturn(60);
+        when(appConfig.getJudgeUserLimit()).thenReturn(10);
+        // 题目 Id 即时间限制(毫秒)，每题 10 个测试点
+        when(problemCache.get(anyInt())).thenAnswer(invocation -> {
+            var problem = new Problem();
+            problem.setTimeout(invocation.getArgument(0));
+            return problem;
+        });
+        when(problemCache.getTestCount(anyInt())).thenReturn(10);
+    }
+
+    private JudgeScheduler scheduler() {
+        return new JudgeScheduler(appConfig, problemCache, new SimpleMeterRegistry());
+    }
+
+    private static Solution solution(int uid, int problemId, int priority) {
+        var solution = new Solution(uid, problemId, null, 0, System.currentTimeMillis(), "");
+        solution.setPriority(priority);
+        return solution;
+    }
+
+    @Test
+    void higherPriorityFirst() {
+        var scheduler = scheduler();
+        var practice = scheduler.add(solution(1, 1000, Priority.PRACTICE), null, 1);
+        var contest = scheduler.add(solution(2, 1000, Priority.CONTEST), null, 2);
+
+        assertSame(contest, scheduler.poll());
+        assertSame(practice, scheduler.poll());
+    }
+
+    @Test
+    void usersShareFairly() {
+        var scheduler = scheduler();
+        var a1 = scheduler.add(solution(1, 1000, Priority.PRACTICE), null, 1);
+        var a2 = scheduler.add(solution(1, 1000, Priority.PRACTICE), null, 2);
+        var a3 = scheduler.add(solution(1, 1000, Priority.PRACTICE), null, 3);
+        var b1 = scheduler.add(solution(2, 1000, Priority.PRACTICE), null, 4);
+
+        // 用户 1 先到，之后用户 2 消耗的时间更少
+        assertSame(a1, scheduler.poll());
+        assertSame(b1, scheduler.poll());
+        assertSame(a2, scheduler.poll());
+        assertSame(a3, scheduler.poll());
+    }
+
+    @Test
+    void shorterJobFirstWithinUser() {
+        var scheduler = scheduler();
+        var slow = scheduler.add(solution(1, 3000, Priority.PRACTICE), null, 1);
+        var fast = scheduler.add(solution(1, 1000, Priority.PRACTICE), null, 2);
+
+        assertSame(fast, scheduler.poll());
+        assertSame(slow, scheduler.poll());
+    }
+
+    @Test
+    void userLimitDefersJobs() {
+        when(appConfig.getJudgeUserLimit()).thenReturn(1);
+        var scheduler = scheduler();
+        var first = scheduler.add(solution(1, 1000, Priority.PRACTICE), null, 1);
+        var second = scheduler.add(solution(1, 1000, Priority.PRACTICE), null, 2);
+
+        assertSame(first, scheduler.poll());
+        assertNull(scheduler.poll());
+        // 结束后补上推迟的一次
+        assertTrue(scheduler.finish(1));
+        assertSame(second, scheduler.poll());
+        assertFalse(scheduler.finish(1));
+    }
+
+    @Test
+    void agedJobBeatsPriority() throws InterruptedException {
+        when(appConfig.getJudgeMaxWait()).thenReturn(1);
+        var scheduler = scheduler();
+        var old = scheduler.add(solution(1, 1000, Priority.PRACTICE), null, 1);
+        Thread.sleep(1100);
+        var contest = scheduler.add(solution(2, 1000, Priority.CONTEST), null, 2);
+
+        assertSame(old, scheduler.poll());
+        assertSame(contest, scheduler.poll());
+    }
+
+    @Test
+    void agedJobsInArrivalOrder() throws InterruptedException {
+        when(appConfig.getJudgeMaxWait()).thenReturn(1);
+        var scheduler = scheduler();
+        var slow = scheduler.add(solution(1, 3000, Priority.PRACTICE), null, 1);
+        var fast = scheduler.add(solution(2, 1000, Priority.CONTEST), null, 2);
+        Thread.sleep(1100);
+
+        assertSame(slow, scheduler.poll());
+        assertSame(fast, scheduler.poll());
+    }
+
+    @Test
+    void unknownCostGoesLast() {
+        var scheduler = scheduler();
+        when(problemCache.get(1)).thenThrow(new IllegalStateException());
+        var unknown = scheduler.add(solution(1, 1, Priority.PRACTICE), null, 1);
+        var known = scheduler.add(solution(1, 1000, Priority.PRACTICE), null, 2);
+
+        assertSame(known, scheduler.poll());
+        assertSame(unknown, scheduler.poll());
+    }
+}
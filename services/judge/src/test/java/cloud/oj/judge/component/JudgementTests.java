@@ -0,0 +1,113 @@
+package cloud.oj.judge.component;
+
+import cloud.oj.judge.entity.Result;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static cloud.oj.judge.entity.Result.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class JudgementTests {
+
+    /**
+     * 分片结果，tests 为 {下标, 结果, 时间, 内存}
+     */
+    private static Result shard(int total, long[]... tests) {
+        return new Result(AC, total, 0, 0D, 0L, 0L, "", List.of(tests));
+    }
+
+    private static long[] test(int index, int status, long time, long memory) {
+        return new long[]{index, status, time, memory};
+    }
+
+    @Test
+    void mergeAllAccepted() {
+        var result = Judgement.merge(List.of(
+                shard(4, test(0, AC, 10, 100), test(2, AC, 30, 300)),
+                shard(4, test(1, AC, 20, 400), test(3, AC, 5, 50))
+        ), 4);
+
+        assertEquals(AC, result.getResult());
+        assertEquals(4, result.getTotal());
+        assertEquals(4, result.getPassed());
+        assertEquals(1D, result.getPassRate());
+        assertEquals(30L, result.getTime());
+        assertEquals(400L, result.getMemory());
+    }
+
+    @Test
+    void mergePartiallyAccepted() {
+        var result = Judgement.merge(List.of(
+                shard(4, test(0, AC, 1, 1), test(2, WA, 1, 1)),
+                shard(4, test(1, AC, 1, 1), test(3, AC, 1, 1))
+        ), 4);
+
+        assertEquals(PA, result.getResult());
+        assertEquals(3, result.getPassed());
+        assertEquals(0.75, result.getPassRate());
+    }
+
+    @Test
+    void mergeUsesProblemTestCount() {
+        // 分片返回的数量不可信，例如第一个分片读取测试数据时出错
+        var result = Judgement.merge(List.of(
+                shard(0, test(0, AC, 1, 1), test(2, AC, 1, 1)),
+                shard(4, test(1, AC, 1, 1), test(3, WA, 1, 1))
+        ), 4);
+
+        assertEquals(PA, result.getResult());
+        assertEquals(4, result.getTotal());
+        assertEquals(0.75, result.getPassRate());
+    }
+
+    @Test
+    void mergeStopsAtFirstRuntimeError() {
+        // 顺序运行时在下标 1 停止，之后其他分片的结果不计入
+        var re = new Result(RE, 4, 0, 0D, 0L, 0L, "Segmentation fault", List.of(test(1, RE, 1, 1)));
+        var result = Judgement.merge(List.of(
+                shard(4, test(0, AC, 1, 1), test(2, AC, 1, 1)),
+                re
+        ), 4);
+
+        assertEquals(RE, result.getResult());
+        assertEquals(1, result.getPassed());
+        assertEquals(0.25, result.getPassRate());
+        assertEquals("Segmentation fault", result.getError());
+    }
+
+    @Test
+    void mergeReportsWorstLimit() {
+        var result = Judgement.merge(List.of(
+                shard(4, test(0, AC, 1, 1), test(2, TLE, 1, 1)),
+                shard(4, test(1, MLE, 1, 1), test(3, WA, 1, 1))
+        ), 4);
+
+        // 与 calc_results 一致: OLE > MLE > TLE
+        assertEquals(MLE, result.getResult());
+        assertEquals(1, result.getPassed());
+    }
+
+    @Test
+    void mergeFailedShard() {
+        var failed = Result.withError(IE, "JUDGE TIMEOUT");
+        var result = Judgement.merge(List.of(
+                shard(4, test(0, AC, 1, 1), test(2, AC, 1, 1)),
+                failed
+        ), 4);
+
+        assertSame(failed, result);
+    }
+
+    @Test
+    void mergeInternalErrorInTest() {
+        var ie = new Result(IE, 4, 0, 0D, 0L, 0L, "open: No such file", List.of(test(1, IE, 0, 0)));
+        var result = Judgement.merge(List.of(
+                shard(4, test(0, AC, 1, 1), test(2, AC, 1, 1)),
+                ie
+        ), 4);
+
+        assertEquals(IE, result.getResult());
+        assertEquals("open: No such file", result.getError());
+    }
+}
@@ -0,0 +1,116 @@
+package cloud.oj.judge.service;
+
+import cloud.oj.judge.dao.RankingDao;
+import cloud.oj.judge.entity.BestScore;
+import cloud.oj.judge.entity.Solution;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.*;
+
+class RankingServiceTests {
+
+    private static final long TIME = 1_700_000_000_000L;
+
+    private final RankingDao rankingDao = mock(RankingDao.class);
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    private RankingService rankingService;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        rankingService = new RankingService(rankingDao, transactionManager);
+    }
+
+    private void best(double score, double passRate) {
+        var best = new BestScore();
+        best.setScore(score);
+        best.setPassRate(passRate);
+        when(rankingDao.getBestScoreForUpdate(1, 0, 1000)).thenReturn(best);
+    }
+
+    private static Solution judged(Integer contestId, double score, double passRate) {
+        var solution = new Solution(1, 1000, contestId, 0, TIME, "");
+        solution.setScore(score);
+        solution.setPassRate(passRate);
+        return solution;
+    }
+
+    @Test
+    void firstScoreIsDelta() {
+        best(0, 0);
+        rankingService.update(judged(null, 60, 0.6));
+
+        verify(rankingDao).initBestScore(1, 0, 1000);
+        verify(rankingDao).updateBestScore(1, 0, 1000, 60D, 0.6);
+        verify(rankingDao).add(1, 60D, 0, TIME, true);
+    }
+
+    @Test
+    void lowerScoreOnlyCountsSubmission() {
+        best(80, 0.8);
+        rankingService.update(judged(null, 40, 0.4));
+
+        verify(rankingDao, never()).updateBestScore(any(), any(), any(), anyDouble(), anyDouble());
+        verify(rankingDao).add(1, 0D, 0, TIME, false);
+    }
+
+    @Test
+    void firstFullPassCountsPassed() {
+        best(80, 0.8);
+        rankingService.update(judged(null, 100, 1));
+
+        verify(rankingDao).updateBestScore(1, 0, 1000, 100D, 1D);
+        verify(rankingDao).add(1, 20D, 1, TIME, true);
+    }
+
+    @Test
+    void repeatedFullPassChangesNothing() {
+        best(100, 1);
+        rankingService.update(judged(null, 100, 1));
+
+        verify(rankingDao, never()).updateBestScore(any(), any(), any(), anyDouble(), anyDouble());
+        verify(rankingDao).add(1, 0D, 0, TIME, false);
+    }
+
+    @Test
+    void contestUsesContestScoreboard() {
+        var best = new BestScore();
+        when(rankingDao.getBestScoreForUpdate(1, 7, 1000)).thenReturn(best);
+        rankingService.update(judged(7, 50, 0.5));
+
+        verify(rankingDao).initBestScore(1, 7, 1000);
+        verify(rankingDao).addForContest(1, 7, 50D, 0, TIME, true);
+        verify(rankingDao, never()).add(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void retriesOnDeadlock() {
+        var best = new BestScore();
+        when(rankingDao.getBestScoreForUpdate(1, 0, 1000))
+                .thenThrow(new DeadlockLoserDataAccessException("deadlock", null))
+                .thenReturn(best);
+        rankingService.update(judged(null, 60, 0.6));
+
+        verify(transactionManager).rollback(any());
+        verify(rankingDao, times(1)).add(1, 60D, 0, TIME, true);
+    }
+
+    @Test
+    void givesUpAfterRepeatedDeadlocks() {
+        when(rankingDao.getBestScoreForUpdate(1, 0, 1000))
+                .thenThrow(new DeadlockLoserDataAccessException("deadlock", null));
+
+        assertThrows(DeadlockLoserDataAccessException.class, () -> rankingService.update(judged(null, 60, 0.6)));
+        verify(rankingDao, times(3)).getBestScoreForUpdate(1, 0, 1000);
+        verify(rankingDao, never()).add(any(), any(), any(), any(), any());
+    }
+}
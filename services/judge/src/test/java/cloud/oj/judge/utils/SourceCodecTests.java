@@ -0,0 +1,95 @@
+package cloud.oj.judge.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SourceCodecTests {
+
+    private static final String C_SOURCE = """
+            #include <stdio.h>
+            int main() {
+                int a, b;
+                scanf("%d %d", &a, &b);
+                printf("%d\\n", a + b);
+                return 0;
+            }
+            """;
+
+    @Test
+    void dictionaryUnchanged() {
+        assertDoesNotThrow(SourceCodec::verify);
+    }
+
+    @Test
+    void roundTrip() {
+        var sources = new String[]{
+                C_SOURCE,
+                "public class Solution {\n    // 中文注释\n    public static void main(String[] args) {}\n}\n",
+                "print(input())\n",
+                "a".repeat(100_000)
+        };
+
+        for (var source : sources) {
+            var encoded = SourceCodec.encode(source);
+            assertEquals(source, SourceCodec.decode(encoded));
+        }
+    }
+
+    @Test
+    void compressesCommonCode() {
+        var encoded = SourceCodec.encode(C_SOURCE);
+
+        assertTrue(SourceCodec.isEncoded(encoded));
+        assertTrue(encoded.length < C_SOURCE.getBytes(StandardCharsets.UTF_8).length / 2);
+    }
+
+    @Test
+    void keepsShortSourceAsText() {
+        // 压缩后更大时保存原文，与未压缩的旧数据相同
+        var encoded = SourceCodec.encode("x");
+
+        assertFalse(SourceCodec.isEncoded(encoded));
+        assertArrayEquals("x".getBytes(StandardCharsets.UTF_8), encoded);
+    }
+
+    @Test
+    void decodesLegacyText() {
+        var legacy = C_SOURCE.getBytes(StandardCharsets.UTF_8);
+
+        assertFalse(SourceCodec.isEncoded(legacy));
+        assertEquals(C_SOURCE, SourceCodec.decode(legacy));
+        assertEquals("", SourceCodec.decode(new byte[0]));
+        assertNull(SourceCodec.decode(null));
+    }
+
+    @Test
+    void encodesTextStartingWithMagic() {
+        // 原文以 MAGIC 开头时必须压缩，否则读取时会被当作压缩数据
+        var source = new String(new byte[]{0x00, 'Z', 0x01}, StandardCharsets.UTF_8) + "x";
+        var encoded = SourceCodec.encode(source);
+
+        assertTrue(SourceCodec.isEncoded(encoded));
+        assertEquals(source, SourceCodec.decode(encoded));
+    }
+
+    @Test
+    void decodesStoredData() {
+        // 已保存的压缩数据，字典或格式改变后无法读取
+        var stored = Base64.getDecoder().decode("AFoBePkXGnWQw5JwMMMCKJCoo5BkjZoQFCBpASijloQ1PSgkKmgrwKSQLQUAimce3g==");
+
+        assertEquals(C_SOURCE, SourceCodec.decode(stored));
+    }
+
+    @Test
+    void rejectsTruncatedData() {
+        var encoded = SourceCodec.encode(C_SOURCE);
+        var truncated = new byte[encoded.length / 2];
+        System.arraycopy(encoded, 0, truncated, 0, truncated.length);
+
+        assertThrows(IllegalArgumentException.class, () -> SourceCodec.decode(truncated));
+    }
+}
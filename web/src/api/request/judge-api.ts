@@ -1,14 +1,15 @@
 import axios, { ApiPath, resolveError } from "@/api"
-import type { SubmitData } from "@/api/type"
+import type { SubmitData, SubmitResult } from "@/api/type"
 import { useStore } from "@/store"
 
 const JudgeApi = {
   /**
    * 提交代码
    * @param data {@link SubmitData}
+   * @return 直接提交模式返回 solutionId 和提交时间，否则只返回提交时间
    */
-  submit(data: SubmitData): Promise<number> {
-    return new Promise<number>((resolve, reject) => {
+  submit(data: SubmitData): Promise<SubmitResult> {
+    return new Promise<SubmitResult>((resolve, reject) => {
       const role = useStore().user.userInfo!.role
       const path = role == 1 ? ApiPath.SUBMIT : ApiPath.ADMIN_SUBMIT
 
@@ -18,7 +19,11 @@ const JudgeApi = {
         data: JSON.stringify(data, (_, v) => v ?? undefined)
       })
         .then((res) => {
-          resolve(res.data as number)
+          resolve(
+            typeof res.data === "number"
+              ? { submitTime: res.data }
+              : (res.data as SubmitResult)
+          )
         })
         .catch((error) => {
           reject(resolveError(error))
@@ -162,6 +162,14 @@ export type SubmitData = {
   type: number
 }
 
+/**
+ * 提交接口的返回值，直接提交模式下带有 solutionId
+ */
+export type SubmitResult = {
+  solutionId?: number
+  submitTime: number
+}
+
 export class JudgeResult {
   solutionId?: number
   uid?: number